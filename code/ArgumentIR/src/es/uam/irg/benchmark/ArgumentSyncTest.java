@@ -0,0 +1,113 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import es.uam.irg.decidemadrid.db.ArgumentSync;
+import es.uam.irg.decidemadrid.db.MongoClientProvider;
+import es.uam.irg.decidemadrid.db.MongoDbManager;
+import es.uam.irg.nlp.am.arguments.Argument;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.bson.Document;
+
+/**
+ * Checks the incremental argument synchronization against a local mongod
+ * (scratch database): changes made after the high-water mark are returned
+ * exactly once, both for upserted arguments (updatedAt) and for documents
+ * inserted by other tools (ObjectId time), including the writes that become
+ * visible after a newer one was polled.
+ *
+ * Usage: ArgumentSyncTest [server] [port]
+ */
+public class ArgumentSyncTest {
+
+    // Test constants
+    private static final String COLLECTION = "annotations_sync";
+    private static final String DATABASE = "arg_ir_sync";
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        String server = (args.length > 0 ? args[0] : MongoDbManager.DB_SERVER);
+        int port = (args.length > 1 ? Integer.parseInt(args[1]) : MongoDbManager.DB_PORT);
+        MongoDatabase db = MongoClientProvider.getClient(server, port).getDatabase(DATABASE);
+        db.drop();
+
+        List<Argument> arguments = new ArrayList<>();
+        new CorpusFixture(1).getProposalArguments().values().forEach(arguments::addAll);
+        MongoDbManager manager = new MongoDbManager(server, port, DATABASE, COLLECTION);
+        UpdateOptions options = new UpdateOptions().upsert(true);
+        List<Argument> received = new ArrayList<>();
+        ArgumentSync sync = new ArgumentSync(manager, received::addAll);
+        boolean passed = true;
+
+        // Initial data, before the mark
+        for (int i = 0; i < 100; i++) {
+            manager.upsertDocument(arguments.get(i).getDocument(), Filters.eq("argumentID", arguments.get(i).getId()), options);
+        }
+        sync.initWatermark();
+        passed &= check("no changes", sync.poll(), 0);
+
+        // Upserts after the mark
+        for (int i = 100; i < 150; i++) {
+            manager.upsertDocument(arguments.get(i).getDocument(), Filters.eq("argumentID", arguments.get(i).getId()), options);
+        }
+        passed &= check("upserted arguments", sync.poll(), 50);
+        passed &= check("same changes again", sync.poll(), 0);
+
+        // Update of an existing argument
+        manager.upsertDocument(arguments.get(0).getDocument(), Filters.eq("argumentID", arguments.get(0).getId()), options);
+        passed &= check("updated argument", sync.poll(), 1);
+
+        // Document inserted by another tool (no updatedAt)
+        Document doc = arguments.get(150).getDocument();
+        db.getCollection(COLLECTION).insertOne(doc);
+        passed &= check("inserted document", sync.poll(), 1);
+        passed &= check("inserted document again", sync.poll(), 0);
+
+        // Concurrent upsert stamped before the mark, visible after the poll
+        Date stamped = new Date(sync.getWatermark().getTime() - 500);
+        db.getCollection(COLLECTION).insertOne(arguments.get(151).getDocument().append(MongoDbManager.UPDATED_AT, stamped));
+        passed &= check("late argument", sync.poll(), 1);
+        passed &= check("late argument again", sync.poll(), 0);
+        passed &= check("received arguments", received.size(), 53);
+
+        db.drop();
+        MongoClientProvider.closeAll();
+        System.out.println(">> " + (passed ? "PASSED" : "FAILED"));
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     *
+     * @param name
+     * @param actual
+     * @param expected
+     * @return
+     */
+    private static boolean check(String name, int actual, int expected) {
+        System.out.format(" - %-25s expected: %4d, actual: %4d %s\n", name, expected, actual, (actual == expected ? "" : "<< FAILED"));
+        return (actual == expected);
+    }
+
+}
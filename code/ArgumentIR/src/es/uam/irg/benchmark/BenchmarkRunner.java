@@ -0,0 +1,189 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal micro-benchmark harness (JMH-like). Each benchmark runs a number of
+ * warm-up and measurement iterations of fixed duration, and reports the
+ * average time per operation together with the allocation rate and the GC
+ * activity measured during the measurement iterations.
+ */
+public class BenchmarkRunner {
+
+    // Class constants
+    public static final int DEFAULT_ITERATION_MS = 1000;
+    public static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+    public static final int DEFAULT_WARMUP_ITERATIONS = 3;
+    private static final String HEADER_FORMAT = "%-58s %8s %12s %10s %14s %12s %8s %8s\n";
+    private static final String ROW_FORMAT = "%-58s %8s %12.3f %10.3f %14.1f %12.1f %8d %8d\n";
+
+    // Result sink, prevents dead-code elimination
+    public static volatile Object blackhole;
+
+    // Class members
+    private final int iterationMs;
+    private final int measurementIterations;
+    private final List<String> results;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final int warmupIterations;
+
+    /**
+     * Constructor.
+     */
+    public BenchmarkRunner() {
+        this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS, DEFAULT_ITERATION_MS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param warmupIterations
+     * @param measurementIterations
+     * @param iterationMs
+     */
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, int iterationMs) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMs = iterationMs;
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.threadBean.setThreadAllocatedMemoryEnabled(true);
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * Prints the results table header.
+     */
+    public void printHeader() {
+        System.out.format(HEADER_FORMAT, "Benchmark", "Param", "ms/op", "+- error", "alloc.MB/sec", "alloc.KB/op", "gc.count", "gc.ms");
+    }
+
+    /**
+     * Runs a benchmark and prints its result row.
+     *
+     * @param name
+     * @param param
+     * @param benchmark
+     */
+    public void run(String name, String param, Benchmark benchmark) {
+        try {
+            // Warm-up
+            for (int i = 0; i < warmupIterations; i++) {
+                iterate(benchmark);
+            }
+
+            // Measurement
+            long threadId = Thread.currentThread().getId();
+            double[] msPerOp = new double[measurementIterations];
+            long totalOps = 0;
+            long totalNanos = 0;
+            long allocStart = threadBean.getThreadAllocatedBytes(threadId);
+            long[] gcStart = getGcStats();
+
+            for (int i = 0; i < measurementIterations; i++) {
+                long[] iteration = iterate(benchmark);
+                msPerOp[i] = (iteration[1] / 1e6) / iteration[0];
+                totalOps += iteration[0];
+                totalNanos += iteration[1];
+            }
+
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocStart;
+            long[] gcEnd = getGcStats();
+
+            double mean = 0.0;
+            for (double value : msPerOp) {
+                mean += value;
+            }
+            mean /= measurementIterations;
+            double variance = 0.0;
+            for (double value : msPerOp) {
+                variance += (value - mean) * (value - mean);
+            }
+            double error = (measurementIterations > 1 ? 2.0 * Math.sqrt(variance / (measurementIterations - 1)) / Math.sqrt(measurementIterations) : 0.0);
+            double allocRate = (allocated / 1048576.0) / (totalNanos / 1e9);
+            double allocPerOp = (allocated / 1024.0) / totalOps;
+
+            String row = String.format(ROW_FORMAT, name, param, mean, error, allocRate, allocPerOp, gcEnd[0] - gcStart[0], gcEnd[1] - gcStart[1]);
+            results.add(row);
+            System.out.print(row);
+
+        } catch (Exception ex) {
+            System.err.println("Benchmark error (" + name + "): " + ex.getMessage());
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<String> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Returns the accumulated GC count and time of all collectors.
+     *
+     * @return
+     */
+    private long[] getGcStats() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    /**
+     * Runs the benchmark for (at least) one iteration time slot.
+     *
+     * @param benchmark
+     * @return number of operations and elapsed nanoseconds
+     * @throws Exception
+     */
+    private long[] iterate(Benchmark benchmark) throws Exception {
+        long deadline = System.nanoTime() + iterationMs * 1000000L;
+        long start = System.nanoTime();
+        long ops = 0;
+        long now;
+
+        do {
+            blackhole = benchmark.run();
+            ops++;
+            now = System.nanoTime();
+        } while (now < deadline);
+
+        return new long[]{ops, now - start};
+    }
+
+    /**
+     * Benchmarked operation.
+     */
+    @FunctionalInterface
+    public interface Benchmark {
+
+        Object run() throws Exception;
+
+    }
+
+}
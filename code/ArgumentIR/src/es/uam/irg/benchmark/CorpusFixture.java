@@ -0,0 +1,259 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMCommentTree;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.nlp.am.arguments.ArgumentLabel;
+import es.uam.irg.nlp.am.arguments.ArgumentLinker;
+import es.uam.irg.nlp.am.arguments.ArgumentPattern;
+import es.uam.irg.nlp.am.arguments.Sentence;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic and reproducible Decide Madrid corpus (proposals, comments,
+ * arguments, labels and controversy scores). Scale 1 has roughly the shape of
+ * a small slice of the real data set; the generator is seeded, so the same
+ * scale always produces the same corpus.
+ */
+public class CorpusFixture {
+
+    // Class constants
+    public static final int BASE_PROPOSALS = 1000;
+    public static final long SEED = 20220125L;
+    private static final String[] CATEGORIES = {"movilidad", "medio ambiente", "urbanismo", "cultura", "deportes", "salud", "educación", "economía"};
+    private static final String[] DISTRICTS = {"centro", "arganzuela", "retiro", "salamanca", "chamartín", "tetuán", "chamberí", "latina", "carabanchel", "usera", "vallecas"};
+    private static final String[] LINKERS = {"porque", "para", "ya que", "por lo tanto", "sin embargo", "aunque", "así que"};
+    private static final String[] RELEVANCES = {"VERY_RELEVANT", "RELEVANT", "NOT_RELEVANT", "SPAM"};
+    private static final String[] TOPICS = {"bicicleta", "transporte", "basura", "parques", "contaminación", "vivienda", "tráfico", "ruido", "limpieza"};
+    private static final String[] WORDS = {"madrid", "ciudad", "calle", "vecinos", "propuesta", "carril", "bici", "autobús", "metro", "árboles",
+        "plaza", "barrio", "ayuntamiento", "coches", "aparcamiento", "zona", "verde", "seguridad", "niños", "mayores", "servicio", "público",
+        "mejorar", "crear", "eliminar", "reducir", "aumentar", "instalar", "limpiar", "transporte", "basura", "contaminación", "ruido"};
+
+    // Class members
+    private final Map<Integer, Double> controversyScores;
+    private final DMDictionary dictionary;
+    private final Map<Integer, List<DMCommentTree>> proposalCommentTrees;
+    private final Map<Integer, List<DMComment>> proposalCommentLists;
+    private final Map<Integer, List<Argument>> proposalArguments;
+    private final Map<Integer, DMComment> proposalComments;
+    private final Map<String, ArgumentLabel> proposalLabels;
+    private final Map<Integer, DMProposalSummary> proposalSummaries;
+    private final Map<Integer, DMProposal> proposals;
+    private final Random random;
+    private final int scale;
+
+    /**
+     * Creates the corpus of the given scale (1, 10, 100...).
+     *
+     * @param scale
+     */
+    public CorpusFixture(int scale) {
+        this.scale = scale;
+        this.random = new Random(SEED);
+        this.dictionary = DMDictionary.getInstance();
+        this.proposals = new HashMap<>();
+        this.proposalSummaries = new HashMap<>();
+        this.proposalComments = new HashMap<>();
+        this.proposalCommentLists = new HashMap<>();
+        this.proposalCommentTrees = new HashMap<>();
+        this.proposalArguments = new HashMap<>();
+        this.proposalLabels = new HashMap<>();
+        this.controversyScores = new HashMap<>();
+        createCorpus();
+    }
+
+    public Map<Integer, Double> getControversyScores() {
+        return controversyScores;
+    }
+
+    public Map<Integer, List<DMCommentTree>> getProposalCommentTrees() {
+        return proposalCommentTrees;
+    }
+
+    public Map<Integer, List<DMComment>> getProposalCommentLists() {
+        return proposalCommentLists;
+    }
+
+    public Map<Integer, List<Argument>> getProposalArguments() {
+        return proposalArguments;
+    }
+
+    public Map<Integer, DMComment> getProposalComments() {
+        return proposalComments;
+    }
+
+    public Map<String, ArgumentLabel> getProposalLabels() {
+        return proposalLabels;
+    }
+
+    public Map<Integer, DMProposalSummary> getProposalSummaries() {
+        return proposalSummaries;
+    }
+
+    public Map<Integer, DMProposal> getProposals() {
+        return proposals;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Returns a list with the rows of the labels CSV file (header included).
+     *
+     * @param header
+     * @return
+     */
+    public List<String[]> getLabelRows(String[] header) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(header);
+        proposalLabels.values().forEach(label -> {
+            rows.add((label.toString() + ",annotator").split(","));
+        });
+        return rows;
+    }
+
+    /**
+     * Generates the whole corpus.
+     */
+    private void createCorpus() {
+        int nProposals = BASE_PROPOSALS * scale;
+        int commentId = 1;
+
+        for (int proposalId = 1; proposalId <= nProposals; proposalId++) {
+            String date = String.format("%d-%02d-%02d", 2015 + random.nextInt(5), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            String title = getText(4 + random.nextInt(8));
+            String summary = getText(20 + random.nextInt(60));
+            DMProposal proposal = new DMProposal(proposalId, "MAD-" + proposalId, title, random.nextInt(50000), date, summary,
+                    getText(80 + random.nextInt(200)), 0, random.nextInt(5000), "/proposals/" + proposalId);
+            proposals.put(proposalId, proposal);
+            proposalSummaries.put(proposalId, new DMProposalSummary(proposalId, getTerms(CATEGORIES, 2), getTerms(DISTRICTS, 1), getTerms(TOPICS, 3), dictionary));
+            controversyScores.put(proposalId, random.nextDouble());
+
+            // Comments (skewed: most proposals have few comments, a few have many)
+            List<DMComment> comments = new ArrayList<>();
+            int nComments = (int) Math.min(200, Math.floor(-Math.log(1 - random.nextDouble()) * 8));
+            for (int i = 0; i < nComments; i++) {
+                int parentId = (comments.isEmpty() || random.nextInt(3) == 0 ? -1 : comments.get(random.nextInt(comments.size())).getId());
+                int votesUp = random.nextInt(30);
+                int votesDown = random.nextInt(10);
+                String time = String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60));
+                DMComment comment = new DMComment(commentId, parentId, proposalId, random.nextInt(50000), date, time,
+                        getText(10 + random.nextInt(50)), votesUp + votesDown, votesUp, votesDown);
+                comments.add(comment);
+                proposalComments.put(commentId, comment);
+                commentId++;
+            }
+            proposalCommentLists.put(proposalId, comments);
+            if (!comments.isEmpty()) {
+                proposalCommentTrees.put(proposalId, DMCommentTree.createTrees(comments));
+            }
+
+            // Arguments (on the proposal summary and ~1/3 of the comments)
+            List<Argument> arguments = new ArrayList<>();
+            if (random.nextInt(4) == 0) {
+                arguments.add(createArgument(proposalId, 0, proposal.getUserId(), -1, summary));
+            }
+            for (DMComment comment : comments) {
+                if (random.nextInt(3) == 0) {
+                    arguments.add(createArgument(proposalId, comment.getId(), comment.getUserId(), comment.getParentId(), comment.getText()));
+                }
+            }
+            if (!arguments.isEmpty()) {
+                proposalArguments.put(proposalId, arguments);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param proposalId
+     * @param commentId
+     * @param userId
+     * @param parentId
+     * @param text
+     * @return
+     */
+    private Argument createArgument(int proposalId, int commentId, int userId, int parentId, String text) {
+        String argumentId = proposalId + "-" + commentId + "-1-1";
+        String[] tokens = text.split(" ");
+        int split = Math.max(1, tokens.length / 2);
+        String claim = String.join(" ", java.util.Arrays.copyOfRange(tokens, 0, split));
+        String premise = String.join(" ", java.util.Arrays.copyOfRange(tokens, split, tokens.length));
+        String linker = LINKERS[random.nextInt(LINKERS.length)];
+        List<String> nouns = new ArrayList<>(List.of(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]));
+        List<String> entities = new ArrayList<>(List.of("Madrid"));
+
+        Argument argument = new Argument(argumentId, userId, commentId, parentId, text, true,
+                new Sentence(claim, nouns, entities), new Sentence(premise, nouns, new ArrayList<>()), "crear",
+                new ArgumentLinker("CAUSE", "REASON", "support", linker), new ArgumentPattern("[sn]-[grup.verb]-[sp_LNK]", 1 + random.nextInt(4)), "");
+        argument.setMajorClaim(new Sentence());
+
+        // ~20% of the arguments are labelled
+        if (random.nextInt(5) == 0) {
+            String relevance = RELEVANCES[random.nextInt(RELEVANCES.length)];
+            proposalLabels.put(argumentId, new ArgumentLabel(argumentId, relevance, "SUFFICIENT", "2022-03-10 20:53:33"));
+        }
+
+        return argument;
+    }
+
+    /**
+     *
+     * @param terms
+     * @param max
+     * @return
+     */
+    private String getTerms(String[] terms, int max) {
+        int n = random.nextInt(max + 1);
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String term = terms[random.nextInt(terms.length)];
+            if (!list.contains(term)) {
+                list.add(term);
+            }
+        }
+        return String.join(",", list);
+    }
+
+    /**
+     *
+     * @param nWords
+     * @return
+     */
+    private String getText(int nWords) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nWords; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import es.uam.irg.decidemadrid.controversy.ControversyScore;
+import es.uam.irg.decidemadrid.db.DMDBManager;
+import es.uam.irg.decidemadrid.db.DatabaseCorpusSource;
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMCommentStore;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.io.CorpusSource;
+import es.uam.irg.io.FileCorpusSource;
+import es.uam.irg.io.IOManager;
+import es.uam.irg.ir.ArgumentScorer;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.utils.IntDoubleMap;
+import es.uam.irg.utils.IntObjectMap;
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compares the retained heap of the int-keyed maps of the data model when
+ * they are stored in HashMaps (boxed keys and scores) and in the primitive
+ * IntObjectMap and IntDoubleMap. The map values are shared, so only the
+ * structure of each map is measured. The comments are also measured as a
+ * whole, as DMComment objects and in the columnar DMCommentStore. Must be run
+ * from the project folder when the corpus is read from the databases.
+ *
+ * Usage: MapFootprintBenchmark [db | dump folder | synthetic scale]
+ */
+public class MapFootprintBenchmark {
+
+    // Benchmark constants
+    private static final int GC_ROUNDS = 5;
+    private static final int MAX_TREE_LEVEL = 3;
+
+    // Keeps the measured object reachable
+    private static volatile Object sink;
+
+    /**
+     * @param args the command line arguments
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String corpus = (args.length > 0 ? args[0] : "10");
+        Map<Integer, DMProposal> proposals;
+        Map<Integer, DMProposalSummary> proposalSummaries;
+        Map<Integer, DMComment> proposalComments;
+        Map<Integer, List<Argument>> proposalArguments;
+        Map<Integer, Double> controversyScores = new HashMap<>();
+
+        if (corpus.equals("db") || new File(corpus).isDirectory()) {
+            CorpusSource source = (corpus.equals("db")
+                    ? new DatabaseCorpusSource(IOManager.getDatabaseConfiguration(IOManager.MYSQL_DB), IOManager.getDatabaseConfiguration(IOManager.MONGO_DB))
+                    : new FileCorpusSource(corpus));
+            proposals = source.loadProposals();
+            proposalSummaries = source.loadProposalSummaries(DMDictionary.getInstance());
+            proposalComments = source.loadComments();
+            proposalArguments = source.loadProposalArguments(MAX_TREE_LEVEL);
+            for (ControversyScore score : source.loadControversyScores().values()) {
+                controversyScores.put(score.getId(), score.getValue());
+            }
+
+        } else {
+            CorpusFixture fixture = new CorpusFixture(Integer.parseInt(corpus));
+            proposals = fixture.getProposals();
+            proposalSummaries = fixture.getProposalSummaries();
+            proposalComments = fixture.getProposalComments();
+            proposalArguments = fixture.getProposalArguments();
+            controversyScores.putAll(fixture.getControversyScores());
+        }
+
+        Map<String, Map<Integer, ?>> maps = new LinkedHashMap<>();
+        maps.put("proposals", proposals);
+        maps.put("proposalSummaries", proposalSummaries);
+        maps.put("proposalComments", proposalComments);
+        maps.put("proposalCommentTrees", DMDBManager.createCommentTrees(proposalComments.values()));
+        maps.put("proposalArguments", proposalArguments);
+
+        Map<String, Map<Integer, Double>> scoreMaps = new LinkedHashMap<>();
+        scoreMaps.put("controversyScores", controversyScores);
+        scoreMaps.put("argumentScores", ArgumentScorer.DEFAULT.getArgumentativeScores(proposalArguments, new HashMap<>()));
+
+        System.out.format("%-24s %10s %14s %14s %10s\n", "Map", "entries", "HashMap (KB)", "IntMap (KB)", "reduction");
+        long totalBoxed = 0;
+        long totalPrimitive = 0;
+        for (Map.Entry<String, Map<Integer, ?>> entry : maps.entrySet()) {
+            Map<Integer, ?> map = entry.getValue();
+            long boxed = measure(() -> copyBoxed(map));
+            long primitive = measure(() -> new IntObjectMap<>(map));
+            print(entry.getKey(), map.size(), boxed, primitive);
+            totalBoxed += boxed;
+            totalPrimitive += primitive;
+        }
+        for (Map.Entry<String, Map<Integer, Double>> entry : scoreMaps.entrySet()) {
+            Map<Integer, Double> map = entry.getValue();
+            long boxed = measure(() -> copyBoxedScores(map));
+            long primitive = measure(() -> new IntDoubleMap(map));
+            print(entry.getKey(), map.size(), boxed, primitive);
+            totalBoxed += boxed;
+            totalPrimitive += primitive;
+        }
+        print("TOTAL", 0, totalBoxed, totalPrimitive);
+
+        // Comments with their values: objects vs columns
+        Map<Integer, DMComment> comments = proposalComments;
+        long objects = measure(() -> copyComments(comments));
+        long columns = measure(() -> {
+            DMCommentStore store = new DMCommentStore(comments.size());
+            comments.values().forEach(store::add);
+            store.compact();
+            return store;
+        });
+        System.out.println();
+        print("comments (store)", comments.size(), objects, columns);
+    }
+
+    /**
+     * Copies a map into a HashMap with new boxed keys (as the maps loaded from
+     * the databases have).
+     *
+     * @param map
+     * @return
+     */
+    private static Map<Integer, Object> copyBoxed(Map<Integer, ?> map) {
+        Map<Integer, Object> copy = new HashMap<>();
+        map.forEach((key, value) -> copy.put(Integer.valueOf(key.intValue()), value));
+        return copy;
+    }
+
+    /**
+     * Copies the comments into new DMComment objects, with their own strings
+     * (as the comments loaded from the databases have).
+     *
+     * @param comments
+     * @return
+     */
+    private static Map<Integer, DMComment> copyComments(Map<Integer, DMComment> comments) {
+        Map<Integer, DMComment> copy = new HashMap<>();
+        for (DMComment c : comments.values()) {
+            String text = (c.getText() != null ? String.valueOf(c.getText().toCharArray()) : null);
+            String date = String.valueOf(c.getDate().toCharArray());
+            String time = String.valueOf(c.getTime().toCharArray());
+            copy.put(c.getId(), new DMComment(c.getId(), c.getParentId(), c.getProposalId(), c.getUserId(), date, time, text,
+                    c.getNumVotes(), c.getNumVotesUp(), c.getNumVotesDown()));
+        }
+        return copy;
+    }
+
+    /**
+     * Copies a score map into a HashMap with new boxed keys and values.
+     *
+     * @param map
+     * @return
+     */
+    private static Map<Integer, Double> copyBoxedScores(Map<Integer, Double> map) {
+        Map<Integer, Double> copy = new HashMap<>();
+        map.forEach((key, value) -> copy.put(Integer.valueOf(key.intValue()), Double.valueOf(value.doubleValue())));
+        return copy;
+    }
+
+    /**
+     * Returns the heap retained by the object created by the supplier.
+     *
+     * @param supplier
+     * @return
+     * @throws InterruptedException
+     */
+    private static long measure(Supplier<Object> supplier) throws InterruptedException {
+        long before = usedHeap();
+        sink = supplier.get();
+        long after = usedHeap();
+        sink = null;
+        return Math.max(0, after - before);
+    }
+
+    /**
+     *
+     * @param name
+     * @param entries
+     * @param boxed
+     * @param primitive
+     */
+    private static void print(String name, int entries, long boxed, long primitive) {
+        double reduction = (boxed > 0 ? 100.0 * (boxed - primitive) / boxed : 0);
+        System.out.format("%-24s %10s %14d %14d %9.1f%%\n", name, (entries > 0 ? "" + entries : ""), boxed / 1024, primitive / 1024, reduction);
+    }
+
+    /**
+     * Returns the used heap after a few garbage collections.
+     *
+     * @return
+     * @throws InterruptedException
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
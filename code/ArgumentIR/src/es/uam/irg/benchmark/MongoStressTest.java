@@ -0,0 +1,118 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import es.uam.irg.decidemadrid.db.MongoClientProvider;
+import es.uam.irg.decidemadrid.db.MongoDbManager;
+import es.uam.irg.nlp.am.arguments.Argument;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stress test of the shared MongoDB client: saves thousands of arguments (one
+ * MongoDbManager per save, as the GUI does) into a scratch collection of a
+ * local mongod, and checks that the number of threads and open file
+ * descriptors (sockets) stays flat.
+ *
+ * Usage: MongoStressTest [saves] [server] [port]
+ */
+public class MongoStressTest {
+
+    // Test constants
+    private static final String COLLECTION = "annotations_stress";
+    private static final String DATABASE = "arg_ir_stress";
+    private static final int MAX_GROWTH = 5;
+    private static final int SAMPLES = 10;
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int nSaves = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+        String server = (args.length > 1 ? args[1] : MongoDbManager.DB_SERVER);
+        int port = (args.length > 2 ? Integer.parseInt(args[2]) : MongoDbManager.DB_PORT);
+
+        // Arguments to save
+        List<Argument> arguments = new ArrayList<>();
+        new CorpusFixture(1).getProposalArguments().values().forEach(arguments::addAll);
+        UpdateOptions options = new UpdateOptions().upsert(true);
+
+        // Warm-up: first save creates the shared client and its pool
+        new MongoDbManager(server, port, DATABASE, COLLECTION).upsertDocument(arguments.get(0).getDocument(), Filters.eq("argumentID", arguments.get(0).getId()), options);
+        int baseThreads = getThreadCount();
+        int baseFds = getOpenFileCount();
+        int maxThreads = baseThreads;
+        int maxFds = baseFds;
+        int nErrors = 0;
+
+        System.out.format("%10s %10s %10s\n", "saves", "threads", "fds");
+        System.out.format("%10d %10d %10d\n", 0, baseThreads, baseFds);
+        long start = System.nanoTime();
+
+        for (int i = 1; i <= nSaves; i++) {
+            Argument arg = arguments.get(i % arguments.size());
+            MongoDbManager manager = new MongoDbManager(server, port, DATABASE, COLLECTION);
+            if (!manager.upsertDocument(arg.getDocument(), Filters.eq("argumentID", arg.getId()), options)) {
+                nErrors++;
+            }
+
+            if (i % Math.max(1, nSaves / SAMPLES) == 0) {
+                int threads = getThreadCount();
+                int fds = getOpenFileCount();
+                maxThreads = Math.max(maxThreads, threads);
+                maxFds = Math.max(maxFds, fds);
+                System.out.format("%10d %10d %10d\n", i, threads, fds);
+            }
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.format(">> %d saves in %.2f s (%.0f saves/s), %d errors\n", nSaves, elapsed, nSaves / elapsed, nErrors);
+
+        // Clean up
+        MongoClientProvider.getClient(server, port).getDatabase(DATABASE).drop();
+        MongoClientProvider.closeAll();
+
+        boolean passed = (nErrors == 0 && maxThreads - baseThreads <= MAX_GROWTH && (baseFds < 0 || maxFds - baseFds <= MAX_GROWTH));
+        System.out.format(">> Thread growth: %d, fd growth: %d - %s\n", maxThreads - baseThreads, maxFds - baseFds, (passed ? "PASSED" : "FAILED"));
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Returns the number of open file descriptors of the process (-1 if it
+     * cannot be read, e.g. outside Linux).
+     *
+     * @return
+     */
+    private static int getOpenFileCount() {
+        String[] files = new File("/proc/self/fd").list();
+        return (files != null ? files.length : -1);
+    }
+
+    /**
+     *
+     * @return
+     */
+    private static int getThreadCount() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+}
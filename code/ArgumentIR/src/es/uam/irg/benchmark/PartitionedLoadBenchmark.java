@@ -0,0 +1,87 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import es.uam.irg.decidemadrid.db.DMDBManager;
+import es.uam.irg.io.IOManager;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures how the parallel loading of the proposals and comments tables
+ * scales with the number of primary key partitions (1, 2, 4 and 8 by
+ * default). Must be run from the project folder (the setup is read from
+ * Resources/config/msql_setup.yaml).
+ *
+ * Usage: PartitionedLoadBenchmark [partitions, e.g. 1,2,4,8] [repetitions]
+ */
+public class PartitionedLoadBenchmark {
+
+    /**
+     * @param args the command line arguments
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String[] values = (args.length > 0 ? args[0] : "1,2,4,8").split(",");
+        int repetitions = (args.length > 1 ? Integer.parseInt(args[1]) : 3);
+        int[] partitions = new int[values.length];
+        int maxPartitions = 1;
+        for (int i = 0; i < values.length; i++) {
+            partitions[i] = Integer.parseInt(values[i].trim());
+            maxPartitions = Math.max(maxPartitions, partitions[i]);
+        }
+
+        // The pool needs one connection per partition plus the one of the manager
+        Map<String, Object> setup = new HashMap<>(IOManager.getDatabaseConfiguration(IOManager.MYSQL_DB));
+        setup.put("db_pool_size", maxPartitions + 1);
+
+        try ( DMDBManager dbManager = new DMDBManager(setup)) {
+            // Warm-up (connections and server caches)
+            dbManager.selectProposals(maxPartitions);
+            dbManager.selectComments(maxPartitions);
+
+            System.out.format("%-16s %10s %10s %12s %10s %12s %10s\n", "Partitions", "proposals", "ms", "speed-up", "comments", "ms", "speed-up");
+            double baseProposals = 0;
+            double baseComments = 0;
+            for (int nPartitions : partitions) {
+                double msProposals = Double.MAX_VALUE;
+                double msComments = Double.MAX_VALUE;
+                int nProposals = 0;
+                int nComments = 0;
+
+                for (int i = 0; i < repetitions; i++) {
+                    long start = System.nanoTime();
+                    nProposals = dbManager.selectProposals(nPartitions).size();
+                    msProposals = Math.min(msProposals, (System.nanoTime() - start) / 1e6);
+
+                    start = System.nanoTime();
+                    nComments = dbManager.selectComments(nPartitions).size();
+                    msComments = Math.min(msComments, (System.nanoTime() - start) / 1e6);
+                }
+
+                if (baseProposals == 0) {
+                    baseProposals = msProposals;
+                    baseComments = msComments;
+                }
+                System.out.format("%-16d %10d %10.1f %11.2fx %10d %12.1f %9.2fx\n", nPartitions, nProposals, msProposals, baseProposals / msProposals,
+                        nComments, msComments, baseComments / msComments);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import es.uam.irg.db.MySQLDBConnector;
+import es.uam.irg.decidemadrid.db.DMDBManager;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.io.IOManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compares, on the full MySQL dataset, the legacy proposal summaries query
+ * (GROUP_CONCAT over a triple join) with the three keyed scans of
+ * DMDBManager.selectProposalSummaries, and checks that both return the same
+ * (lower-cased, distinct) terms per proposal. Must be run from the project
+ * folder (the setup is read from Resources/config/msql_setup.yaml).
+ *
+ * Usage: ProposalSummaryBenchmark [measurement iterations]
+ */
+public class ProposalSummaryBenchmark {
+
+    // Benchmark constants
+    private static final String LEGACY_QUERY = "SELECT p.id, "
+            + "       IFNULL(GROUP_CONCAT(DISTINCT pc.category), '') AS categories, "
+            + "       IFNULL(GROUP_CONCAT(DISTINCT pd.district), '') AS districts, "
+            + "       IFNULL(GROUP_CONCAT(DISTINCT pt.topic), '') AS topic "
+            + "  FROM proposals_2_processed AS p "
+            + "  LEFT OUTER JOIN "
+            + "       proposal_categories AS pc ON p.id = pc.id "
+            + "  LEFT OUTER JOIN "
+            + "       proposal_locations AS pd ON p.id = pd.id "
+            + "  LEFT OUTER JOIN "
+            + "       proposal_topics AS pt ON p.id = pt.id "
+            + " GROUP BY p.id, p.date, p.title;";
+
+    /**
+     * @param args the command line arguments
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : 3);
+        Map<String, Object> setup = IOManager.getDatabaseConfiguration(IOManager.MYSQL_DB);
+        BenchmarkRunner runner = new BenchmarkRunner(1, iterations, 1);
+
+        try ( DMDBManager dbManager = new DMDBManager(setup);  MySQLDBConnector db = new MySQLDBConnector()) {
+            db.connect(setup.get("db_server").toString(), setup.get("db_name").toString(), setup.get("db_user_name").toString(), setup.get("db_user_pw").toString());
+
+            // Same result
+            Map<Integer, DMProposalSummary> legacy = selectLegacySummaries(db, new DMDictionary());
+            Map<Integer, DMProposalSummary> scans = dbManager.selectProposalSummaries();
+            int nDiffs = 0;
+            for (DMProposalSummary summary : legacy.values()) {
+                DMProposalSummary other = scans.get(summary.getId());
+                if (other == null || !sameTerms(summary.getCategories(), other.getCategories())
+                        || !sameTerms(summary.getDistricts(), other.getDistricts()) || !sameTerms(summary.getTopics(), other.getTopics())) {
+                    nDiffs++;
+                }
+            }
+            System.out.format("Proposals: %d (legacy), %d (keyed scans), different summaries: %d\n", legacy.size(), scans.size(), nDiffs);
+
+            // Timing
+            runner.printHeader();
+            runner.run("selectProposalSummaries:GROUP_CONCAT", "full", () -> selectLegacySummaries(db, new DMDictionary()));
+            runner.run("selectProposalSummaries:keyed scans", "full", () -> dbManager.selectProposalSummaries());
+        }
+    }
+
+    /**
+     * Compares two comma-separated term lists, ignoring the order.
+     *
+     * @param terms1
+     * @param terms2
+     * @return
+     */
+    private static boolean sameTerms(String terms1, String terms2) {
+        return new TreeSet<>(Arrays.asList(terms1.split(","))).equals(new TreeSet<>(Arrays.asList(terms2.split(","))));
+    }
+
+    /**
+     * Runs the legacy query.
+     *
+     * @param db
+     * @param dictionary
+     * @return
+     * @throws Exception
+     */
+    private static Map<Integer, DMProposalSummary> selectLegacySummaries(MySQLDBConnector db, DMDictionary dictionary) throws Exception {
+        Map<Integer, DMProposalSummary> proposals = new HashMap<>();
+        db.executeSelect(LEGACY_QUERY, rs -> {
+            int id = rs.getInt("id");
+            String categories = rs.getString("categories").toLowerCase();
+            String districts = rs.getString("districts").toLowerCase();
+            String topics = rs.getString("topic").toLowerCase();
+            proposals.put(id, new DMProposalSummary(id, categories, districts, topics, dictionary));
+        });
+        return proposals;
+    }
+
+}
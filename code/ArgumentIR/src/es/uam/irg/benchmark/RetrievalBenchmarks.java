@@ -0,0 +1,189 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.benchmark;
+
+import es.uam.irg.decidemadrid.db.ArgumentCodec;
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMCommentTree;
+import es.uam.irg.io.IOManager;
+import es.uam.irg.ir.ArgumentScorer;
+import es.uam.irg.ir.InfoRetriever;
+import es.uam.irg.ir.gui.ArgumentIRForm;
+import es.uam.irg.ir.gui.ReportFormatter;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.nlp.am.arguments.Sentence;
+import es.uam.irg.utils.FileUtils;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.search.Query;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+
+/**
+ * Benchmark suite of the retrieval and rendering hot paths, run over the
+ * synthetic corpus at 1x, 10x and 100x scale. Must be run from the project
+ * folder (the report templates are read from Resources/views).
+ *
+ * Usage: RetrievalBenchmarks [scales, e.g. 1,10,100] [iteration ms]
+ */
+public class RetrievalBenchmarks {
+
+    // Benchmark constants
+    private static final String[] CSV_FILE_HEADER = {"proposal_id", "argument_id", "relevance", "quality", "timestamp", "username"};
+    private static final String FILTER_CATEGORY = "movilidad";
+    private static final String QUERY = "transporte OR bici";
+    private static final String[] RERANKS = {"NOTHING", "ARGUMENTS", "CONTROVERSY"};
+    private static final String[] SIMILARITIES = {"BM25", "COSINE", "DIRICHLET"};
+
+    /**
+     * @param args the command line arguments
+     * @throws java.lang.Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String[] scales = (args.length > 0 ? args[0] : "1,10,100").split(",");
+        int iterationMs = (args.length > 1 ? Integer.parseInt(args[1]) : BenchmarkRunner.DEFAULT_ITERATION_MS);
+        BenchmarkRunner runner = new BenchmarkRunner(BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS, BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS, iterationMs);
+
+        runner.printHeader();
+        for (String value : scales) {
+            int scale = Integer.parseInt(value.trim());
+            runBenchmarks(runner, new CorpusFixture(scale));
+        }
+    }
+
+    /**
+     * Returns a sentence with its lists in the legacy "[a, b]" text format.
+     *
+     * @param sentence
+     * @return
+     */
+    private static Document getLegacyDocument(Sentence sentence) {
+        return new Document("text", sentence.getText())
+                .append("nouns", sentence.getNouns().toString())
+                .append("entities", sentence.getEntities().toString());
+    }
+
+    /**
+     * Runs all benchmarks over a corpus.
+     *
+     * @param runner
+     * @param fixture
+     * @throws Exception
+     */
+    private static void runBenchmarks(BenchmarkRunner runner, CorpusFixture fixture) throws Exception {
+        String param = fixture.getScale() + "x";
+
+        // Indexing
+        runner.run("InfoRetriever.createDocumentIndex", param, () -> {
+            InfoRetriever retriever = new InfoRetriever();
+            retriever.createDocumentIndex(fixture.getProposals(), fixture.getProposalSummaries());
+            return retriever;
+        });
+
+        // Retrieval per similarity and re-ranking
+        InfoRetriever retriever = new InfoRetriever();
+        retriever.createDocumentIndex(fixture.getProposals(), fixture.getProposalSummaries());
+        Map<Integer, Double> argScores = ArgumentScorer.DEFAULT.getArgumentativeScores(fixture.getProposalArguments(), fixture.getProposalLabels());
+
+        for (String similarity : SIMILARITIES) {
+            for (String reRankBy : RERANKS) {
+                Map<Integer, Double> scores = (reRankBy.equals("ARGUMENTS") ? argScores : (reRankBy.equals("CONTROVERSY") ? fixture.getControversyScores() : null));
+                runner.run("InfoRetriever.retrieveInformation:" + similarity + ":" + reRankBy, param, () -> {
+                    return retriever.retrieveInformation(QUERY, similarity, scores);
+                });
+            }
+        }
+
+        // Retrieval filtered by category (dictionary id fields)
+        Query filter = InfoRetriever.getTermFilter(InfoRetriever.CATEGORY_FIELD, FILTER_CATEGORY);
+        runner.run("InfoRetriever.retrieveInformation:BM25:CATEGORY", param, () -> {
+            return retriever.retrieveInformation(QUERY, "BM25", argScores, InfoRetriever.LAMBDA, filter);
+        });
+
+        // Argumentative scores
+        runner.run("ArgumentScorer.getArgumentativeScores", param, () -> {
+            return ArgumentScorer.DEFAULT.getArgumentativeScores(fixture.getProposalArguments(), fixture.getProposalLabels());
+        });
+
+        // Comment trees
+        runner.run("DMCommentTree.createTrees", param, () -> {
+            List<List<DMCommentTree>> trees = new ArrayList<>();
+            for (List<DMComment> comments : fixture.getProposalCommentLists().values()) {
+                trees.add(DMCommentTree.createTrees(comments));
+            }
+            return trees;
+        });
+
+        // Report rendering (first result page)
+        ReportFormatter formatter = new ReportFormatter(ArgumentIRForm.DECIMAL_FORMAT, ArgumentIRForm.DATE_FORMAT);
+        List<Integer> docList = retriever.retrieveInformation(QUERY, "BM25", argScores);
+        List<Integer> page = docList.subList(0, Math.min(10, docList.size()));
+        runner.run("ReportFormatter.getProposalInfoReport", param, () -> {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < page.size(); i++) {
+                int docId = page.get(i);
+                body.append(formatter.getProposalInfoReport(i + 1, fixture.getProposals().get(docId), fixture.getProposalSummaries().get(docId),
+                        fixture.getProposalCommentTrees().get(docId), fixture.getProposalComments(), Collections.emptyMap(), fixture.getProposalArguments().get(docId),
+                        fixture.getControversyScores().getOrDefault(docId, 0.0), fixture.getProposalLabels()));
+            }
+            return body.toString();
+        });
+
+        // Argument decoding: generic Document map vs typed codec (legacy text lists)
+        List<RawBsonDocument> rawArguments = new ArrayList<>();
+        for (List<Argument> args : fixture.getProposalArguments().values()) {
+            for (Argument arg : args) {
+                Document doc = arg.getDocument();
+                doc.put("majorClaim", getLegacyDocument(arg.getMajorClaim()));
+                doc.put("claim", getLegacyDocument(arg.claim));
+                doc.put("premise", getLegacyDocument(arg.premise));
+                rawArguments.add(new RawBsonDocument(doc, new DocumentCodec()));
+            }
+        }
+        DocumentCodec documentCodec = new DocumentCodec();
+        ArgumentCodec argumentCodec = new ArgumentCodec();
+        runner.run("Argument(Document)", param, () -> {
+            List<Argument> args = new ArrayList<>(rawArguments.size());
+            for (RawBsonDocument raw : rawArguments) {
+                args.add(new Argument(documentCodec.decode(raw.asBsonReader(), DecoderContext.builder().build())));
+            }
+            return args;
+        });
+        runner.run("ArgumentCodec.decode", param, () -> {
+            List<Argument> args = new ArrayList<>(rawArguments.size());
+            for (RawBsonDocument raw : rawArguments) {
+                args.add(argumentCodec.decode(raw.asBsonReader(), DecoderContext.builder().build()));
+            }
+            return args;
+        });
+
+        // Labels file
+        File labelsFile = File.createTempFile("labels-", ".csv");
+        labelsFile.deleteOnExit();
+        FileUtils.saveCsvFile(labelsFile.getPath(), fixture.getLabelRows(CSV_FILE_HEADER));
+        runner.run("IOManager.readArgumentLabelList", param, () -> {
+            return IOManager.readArgumentLabelList(labelsFile.getPath());
+        });
+    }
+
+}
@@ -0,0 +1,276 @@
+package es.uam.irg.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small JDBC connection pool. Connections are validated when they are
+ * borrowed, reused in LIFO order and evicted after being idle for a while.
+ * There is one pool per connection URL, shared by all the DBConnector
+ * instances, and all pools are closed on JVM shutdown.
+ */
+public class ConnectionPool {
+
+    // Public constants
+    public static final int DEFAULT_IDLE_TIMEOUT = 300;
+    public static final int DEFAULT_MAX_SIZE = 8;
+    public static final int DEFAULT_MAX_WAIT = 30;
+    public static final int DEFAULT_VALIDATION_TIMEOUT = 2;
+
+    // Pools by connection URL
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "connection-pool-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConnectionPool::closeAll, "connection-pool-close"));
+    }
+
+    // Private attributes
+    private volatile boolean closed;
+    private final LinkedBlockingDeque<PooledConnection> idle;
+    private final long idleTimeoutMs;
+    private final int maxSize;
+    private final int maxWait;
+    private final Semaphore permits;
+    private final String url;
+    private final int validationTimeout;
+
+    // ============
+    // CONSTRUCTORS
+    // ============
+    /**
+     * Creates a connection pool
+     *
+     * @param url the JDBC URL of the connections
+     * @param maxSize maximum number of open connections
+     * @param idleTimeout seconds after which an idle connection is closed
+     * @param validationTimeout seconds to wait for a connection validation
+     */
+    public ConnectionPool(String url, int maxSize, int idleTimeout, int validationTimeout) {
+        this.url = url;
+        this.maxSize = maxSize;
+        this.maxWait = DEFAULT_MAX_WAIT;
+        this.idleTimeoutMs = idleTimeout * 1000L;
+        this.validationTimeout = validationTimeout;
+        this.idle = new LinkedBlockingDeque<>();
+        this.permits = new Semaphore(maxSize, true);
+        this.closed = false;
+
+        long period = Math.max(1000, this.idleTimeoutMs / 2);
+        EVICTOR.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // ==============
+    // POOL REGISTRY
+    // ==============
+    /**
+     * Returns the shared pool of a connection URL (the options are only used
+     * when the pool is created)
+     *
+     * @param url the JDBC URL of the connections
+     * @param maxSize maximum number of open connections
+     * @param idleTimeout seconds after which an idle connection is closed
+     * @param validationTimeout seconds to wait for a connection validation
+     * @return
+     */
+    public static ConnectionPool getPool(String url, int maxSize, int idleTimeout, int validationTimeout) {
+        return POOLS.computeIfAbsent(url, k -> new ConnectionPool(url, maxSize, idleTimeout, validationTimeout));
+    }
+
+    /**
+     * Closes all the pools
+     */
+    public static void closeAll() {
+        POOLS.values().forEach(ConnectionPool::close);
+        POOLS.clear();
+    }
+
+    // =======================
+    // POOL MANAGEMENT METHODS
+    // =======================
+    /**
+     * Borrows a valid connection from the pool, opening a new one if there
+     * are no idle connections (and the maximum size has not been reached)
+     *
+     * @return
+     * @throws java.sql.SQLException
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(maxWait, TimeUnit.SECONDS)) {
+                throw new SQLException("Connection pool exhausted (" + maxSize + " connections in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        return open();
+    }
+
+    /**
+     * Borrows a valid connection from the pool only if one is free right now
+     * (without waiting)
+     *
+     * @return the connection, or null if all of them are in use
+     * @throws java.sql.SQLException
+     */
+    public Connection tryBorrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        return open();
+    }
+
+    /**
+     * Returns an idle connection, or a new one (a permit must be held)
+     *
+     * @return
+     * @throws java.sql.SQLException
+     */
+    private Connection open() throws SQLException {
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isValid(pooled.connection)) {
+                    return pooled.connection;
+                }
+                closeQuietly(pooled.connection);
+            }
+            return DriverManager.getConnection(url);
+
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the idle connections and rejects new borrows
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.connection);
+        }
+    }
+
+    /**
+     *
+     * @return number of idle connections
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     *
+     * @return number of borrowed connections
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Returns a borrowed connection to the pool
+     *
+     * @param connection
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            if (closed || connection.isClosed()) {
+                closeQuietly(connection);
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                idle.offerFirst(new PooledConnection(connection));
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the connections that have been idle longer than the idle timeout
+     */
+    private void evictIdleConnections() {
+        long limit = System.currentTimeMillis() - idleTimeoutMs;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastUsed < limit && idle.removeFirstOccurrence(pooled)) {
+                closeQuietly(pooled.connection);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param connection
+     * @return
+     */
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @param connection
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+        }
+    }
+
+    /**
+     * Idle connection entry
+     */
+    private static class PooledConnection {
+
+        private final Connection connection;
+        private final long lastUsed;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+    }
+
+}
@@ -3,17 +3,34 @@ package es.uam.irg.db;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Nico
  */
-public class DBConnector {
+public class DBConnector implements AutoCloseable {
+    // Public constants
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int STATEMENT_CACHE_SIZE = 32;
+
     // Private attributes
 
     private Connection connection;
+    private int idleTimeout;
+    private final List<Statement> openStatements;
+    private ConnectionPool pool;
+    private int poolSize;
+    private final Map<String, PreparedStatement> statementCache;
+    private int validationTimeout;
 
     // ============
     // CONSTRUCTORS
@@ -28,6 +45,12 @@ public class DBConnector {
      */
     public DBConnector(String driverClassName, Driver driver) throws Exception {
         this.connection = null;
+        this.pool = null;
+        this.openStatements = new ArrayList<>();
+        this.statementCache = new LinkedHashMap<>(16, 0.75f, true);
+        this.poolSize = ConnectionPool.DEFAULT_MAX_SIZE;
+        this.idleTimeout = ConnectionPool.DEFAULT_IDLE_TIMEOUT;
+        this.validationTimeout = ConnectionPool.DEFAULT_VALIDATION_TIMEOUT;
         try {
             DriverManager.registerDriver(driver);
             Class.forName(driverClassName);
@@ -55,12 +78,60 @@ public class DBConnector {
         }
     }
 
+    /**
+     * Starts a transaction on the current connection (auto-commit is disabled
+     * until commit or rollback is called)
+     *
+     * @throws java.lang.Exception
+     */
+    public void beginTransaction() throws Exception {
+        try {
+            this.connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw e;
+        }
+    }
+
+    /**
+     * Commits the current transaction and restores the auto-commit mode
+     *
+     * @throws java.lang.Exception
+     */
+    public void commit() throws Exception {
+        try {
+            this.connection.commit();
+            this.connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw e;
+        }
+    }
+
+    /**
+     * Rolls back the current transaction and restores the auto-commit mode
+     */
+    public void rollback() {
+        try {
+            this.connection.rollback();
+            this.connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("MySQL error: " + e.getMessage());
+        }
+    }
+
     // ===========================
     // DATABASE MANAGEMENT METHODS
     // ===========================
     /**
-     * Acquires a connection to a database according to the parameters of the
-     * given URL
+     * Closes the connection to the database (AutoCloseable)
+     */
+    @Override
+    public void close() {
+        this.disconnect();
+    }
+
+    /**
+     * Borrows a connection to a database according to the parameters of the
+     * given URL from the shared pool of that URL
      *
      * @param url the URL with the information of the server, database name,
      * user name and user password
@@ -69,23 +140,101 @@ public class DBConnector {
     public void connect(String url) throws Exception {
         try {
             this.disconnect();
-            this.connection = DriverManager.getConnection(url);
+            this.pool = ConnectionPool.getPool(url, this.poolSize, this.idleTimeout, this.validationTimeout);
+            this.connection = this.pool.borrow();
         } catch (SQLException e) {
             throw e;
         }
     }
 
     /**
-     * Closes the connection to the database
+     * Borrows a connection from the shared pool of the given URL only if one
+     * is free right now (without waiting)
+     *
+     * @param url the URL with the information of the server, database name,
+     * user name and user password
+     * @return true if the connection was borrowed
+     * @throws java.lang.Exception
+     */
+    public boolean tryConnect(String url) throws Exception {
+        this.disconnect();
+        this.pool = ConnectionPool.getPool(url, this.poolSize, this.idleTimeout, this.validationTimeout);
+        this.connection = this.pool.tryBorrow();
+        return this.connection != null;
+    }
+
+    /**
+     * Closes the open statements and returns the connection to the pool
      */
     public void disconnect() {
+        for (Statement stm : this.openStatements) {
+            try {
+                stm.close();
+            } catch (SQLException e) {
+            }
+        }
+        this.openStatements.clear();
+
+        for (PreparedStatement stm : this.statementCache.values()) {
+            try {
+                stm.close();
+            } catch (SQLException e) {
+            }
+        }
+        this.statementCache.clear();
+
+        if (this.connection != null) {
+            this.pool.release(this.connection);
+            this.connection = null;
+        }
+    }
+
+    /**
+     * Executes a parameterised query once per row of values, sending the rows
+     * to the server in batches of batchSize. Values are bound to the '?'
+     * placeholders of the query, in order. If no transaction is open, the
+     * whole batch is run in its own transaction (committed at the end, rolled
+     * back on error); otherwise it joins the open transaction
+     *
+     * @param query the parameterised Insert, Update or Delete SQL query
+     * @param rows the values of each execution
+     * @param batchSize number of rows per round trip
+     *
+     * @return number of executed rows
+     * @throws java.lang.Exception
+     */
+    public int executeBatch(String query, Iterable<Object[]> rows, int batchSize) throws Exception {
+        int numRows = 0;
+        boolean ownTransaction = this.connection.getAutoCommit();
         try {
-            if (this.connection != null) {
-                this.connection.close();
-                this.connection = null;
+            if (ownTransaction) {
+                this.beginTransaction();
+            }
+
+            PreparedStatement stm = this.prepareStatement(query);
+            int pending = 0;
+            for (Object[] values : rows) {
+                bindValues(stm, values);
+                stm.addBatch();
+                if (++pending >= batchSize) {
+                    numRows += stm.executeBatch().length;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                numRows += stm.executeBatch().length;
+            }
+
+            if (ownTransaction) {
+                this.commit();
             }
         } catch (SQLException e) {
+            if (ownTransaction) {
+                this.rollback();
+            }
+            throw e;
         }
+        return numRows;
     }
 
     /**
@@ -157,6 +306,7 @@ public class DBConnector {
         ResultSet rs = null;
         try {
             Statement stm = this.connection.createStatement();
+            this.openStatements.add(stm);
             rs = stm.executeQuery(query);
         } catch (SQLException e) {
             throw e;
@@ -164,6 +314,34 @@ public class DBConnector {
         return rs;
     }
 
+    /**
+     * Selects several records of the database and streams them, row by row,
+     * to the given handler. The statement is forward-only and read-only, the
+     * rows are fetched from the server in small chunks (see getFetchSize),
+     * and both the statement and the result set are closed when done
+     *
+     * @param query Select SQL query
+     * @param handler callback invoked for each row
+     *
+     * @return number of processed rows
+     * @throws java.lang.Exception
+     */
+    public int executeSelect(String query, RowHandler handler) throws Exception {
+        int numRows = 0;
+        try ( Statement stm = this.connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stm.setFetchSize(this.getFetchSize());
+            try ( ResultSet rs = stm.executeQuery(query)) {
+                while (rs.next()) {
+                    handler.processRow(rs);
+                    numRows++;
+                }
+            }
+        } catch (SQLException e) {
+            throw e;
+        }
+        return numRows;
+    }
+
     /**
      * Makes an update in the database. Note that a connection has to be
      * previously opened (connect method)
@@ -192,6 +370,28 @@ public class DBConnector {
         return numRows;
     }
 
+    /**
+     * Executes a parameterised Insert, Update or Delete query. Note that a
+     * connection has to be previously opened (connect method)
+     *
+     * @param query the parameterised SQL query to execute
+     * @param values the values bound to the '?' placeholders, in order
+     *
+     * @return number of affected records
+     * @throws java.lang.Exception
+     */
+    public int executeUpdate(String query, Object... values) throws Exception {
+        int numRows = 0;
+        try {
+            PreparedStatement stm = this.prepareStatement(query);
+            bindValues(stm, values);
+            numRows = stm.executeUpdate();
+        } catch (SQLException e) {
+            throw e;
+        }
+        return numRows;
+    }
+
     /**
      * Closes the connection to the database. Method invoked by the 'garbage
      * collection' system
@@ -200,10 +400,33 @@ public class DBConnector {
         this.disconnect();
     }
 
+    /**
+     * Number of rows fetched per round trip by the streaming selects
+     *
+     * @return
+     */
+    protected int getFetchSize() {
+        return DEFAULT_FETCH_SIZE;
+    }
+
     public Connection getConnection() {
         return this.connection;
     }
 
+    /**
+     * Sets the options of the connection pool (only used if the pool of the
+     * connection URL has not been created yet)
+     *
+     * @param poolSize maximum number of open connections
+     * @param idleTimeout seconds after which an idle connection is closed
+     * @param validationTimeout seconds to wait for a connection validation
+     */
+    public void setPoolOptions(int poolSize, int idleTimeout, int validationTimeout) {
+        this.poolSize = poolSize;
+        this.idleTimeout = idleTimeout;
+        this.validationTimeout = validationTimeout;
+    }
+
     /**
      * TRUE if connection is established, FALSE if not
      *
@@ -229,5 +452,47 @@ public class DBConnector {
             throw e;
         }
     }
-    
+
+    /**
+     * Returns the prepared statement of the given query, reusing it if it was
+     * already prepared on the current connection. The least recently used
+     * statement is closed when the cache is full
+     *
+     * @param query the parameterised SQL query
+     *
+     * @return
+     * @throws java.lang.Exception
+     */
+    public PreparedStatement prepareStatement(String query) throws Exception {
+        PreparedStatement stm = this.statementCache.get(query);
+        try {
+            if (stm == null || stm.isClosed()) {
+                stm = this.connection.prepareStatement(query);
+                this.statementCache.put(query, stm);
+
+                if (this.statementCache.size() > STATEMENT_CACHE_SIZE) {
+                    Map.Entry<String, PreparedStatement> eldest = this.statementCache.entrySet().iterator().next();
+                    this.statementCache.remove(eldest.getKey());
+                    eldest.getValue().close();
+                }
+            }
+        } catch (SQLException e) {
+            throw e;
+        }
+        return stm;
+    }
+
+    /**
+     * Binds the given values to the placeholders of a prepared statement
+     *
+     * @param stm
+     * @param values
+     * @throws SQLException
+     */
+    private static void bindValues(PreparedStatement stm, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            stm.setObject(i + 1, values[i]);
+        }
+    }
+
 }
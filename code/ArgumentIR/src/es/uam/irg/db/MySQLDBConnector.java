@@ -22,7 +22,8 @@ public class MySQLDBConnector extends DBConnector {
     // ===========================
     /**
      * Acquires a connection to a database with the given user name and user
-     * password
+     * password. Batched prepared inserts are rewritten by the driver into
+     * multi-row INSERT statements (rewriteBatchedStatements)
      *
      * @param dbServer the URL of the database server in which the connection is
      * going to be established
@@ -33,6 +34,43 @@ public class MySQLDBConnector extends DBConnector {
      * connection
      */
     public void connect(String dbServer, String dbName, String userName, String userPassword) throws Exception {
-        super.connect(DB_PROTOCOL + "//" + dbServer + "/" + dbName + "?user=" + userName + "&password=" + userPassword + "&useUnicode=true&characterEncoding=UTF-8&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=UTC");
+        super.connect(getUrl(dbServer, dbName, userName, userPassword));
+    }
+
+    /**
+     * Acquires a connection to a database only if the pool has a free one
+     * right now (see connect)
+     *
+     * @param dbServer
+     * @param dbName
+     * @param userName
+     * @param userPassword
+     * @return true if the connection was acquired
+     */
+    public boolean tryConnect(String dbServer, String dbName, String userName, String userPassword) throws Exception {
+        return super.tryConnect(getUrl(dbServer, dbName, userName, userPassword));
+    }
+
+    /**
+     *
+     * @param dbServer
+     * @param dbName
+     * @param userName
+     * @param userPassword
+     * @return the JDBC URL of the connections
+     */
+    private static String getUrl(String dbServer, String dbName, String userName, String userPassword) {
+        return DB_PROTOCOL + "//" + dbServer + "/" + dbName + "?user=" + userName + "&password=" + userPassword + "&useUnicode=true&characterEncoding=UTF-8&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=UTC&rewriteBatchedStatements=true";
+    }
+
+    /**
+     * Connector/J only streams the result set row by row (instead of
+     * buffering it in memory) with a fetch size of Integer.MIN_VALUE
+     *
+     * @return
+     */
+    @Override
+    protected int getFetchSize() {
+        return Integer.MIN_VALUE;
     }
 }
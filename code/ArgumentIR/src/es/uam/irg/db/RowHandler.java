@@ -0,0 +1,21 @@
+package es.uam.irg.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Callback that processes the rows of a streaming select, one at a time.
+ * The result set must not be stored, since it is closed after the select.
+ */
+@FunctionalInterface
+public interface RowHandler {
+
+    /**
+     * Processes the current row of the result set
+     *
+     * @param rs result set positioned on the current row
+     * @throws java.sql.SQLException
+     */
+    void processRow(ResultSet rs) throws SQLException;
+
+}
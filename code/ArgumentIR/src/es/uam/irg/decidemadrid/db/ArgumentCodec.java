@@ -0,0 +1,326 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.nlp.am.arguments.ArgumentLinker;
+import es.uam.irg.nlp.am.arguments.ArgumentPattern;
+import es.uam.irg.nlp.am.arguments.Sentence;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * BSON codec of the Argument class. Arguments are decoded straight from the
+ * BSON reader (without an intermediate Document map), and the nouns and
+ * entities of the sentences are written as native BSON arrays. The legacy
+ * "[a, b]" string format is still accepted when decoding.
+ */
+public class ArgumentCodec implements Codec<Argument> {
+
+    /**
+     *
+     * @param reader
+     * @param decoderContext
+     * @return
+     */
+    @Override
+    public Argument decode(BsonReader reader, DecoderContext decoderContext) {
+        String argumentID = null;
+        int userID = 0;
+        int commentID = 0;
+        int parentID = 0;
+        String sentenceText = "";
+        boolean sentenceSimple = false;
+        Sentence majorClaim = new Sentence();
+        Sentence claim = new Sentence();
+        Sentence premise = new Sentence();
+        String mainVerb = "";
+        ArgumentLinker linker = null;
+        ArgumentPattern pattern = new ArgumentPattern();
+        String syntacticTree = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+
+            switch (name) {
+                case "argumentID":
+                    argumentID = reader.readString();
+                    break;
+                case "userID":
+                    userID = reader.readInt32();
+                    break;
+                case "commentID":
+                    commentID = reader.readInt32();
+                    break;
+                case "parentID":
+                    parentID = reader.readInt32();
+                    break;
+                case "sentence":
+                    sentenceText = reader.readString();
+                    break;
+                case "sentenceSimple":
+                    sentenceSimple = reader.readBoolean();
+                    break;
+                case "majorClaim":
+                    majorClaim = decodeSentence(reader);
+                    break;
+                case "claim":
+                    claim = decodeSentence(reader);
+                    break;
+                case "premise":
+                    premise = decodeSentence(reader);
+                    break;
+                case "mainVerb":
+                    mainVerb = reader.readString();
+                    break;
+                case "linker":
+                    linker = decodeLinker(reader);
+                    break;
+                case "pattern":
+                    pattern = decodePattern(reader);
+                    break;
+                case "syntacticTree":
+                    syntacticTree = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        if (linker == null) {
+            linker = new ArgumentLinker("", "", "", "");
+        }
+        Argument argument = new Argument(argumentID, userID, commentID, parentID, sentenceText, sentenceSimple,
+                claim, premise, mainVerb, linker, pattern, syntacticTree);
+        argument.setMajorClaim(majorClaim);
+
+        return argument;
+    }
+
+    /**
+     *
+     * @param writer
+     * @param argument
+     * @param encoderContext
+     */
+    @Override
+    public void encode(BsonWriter writer, Argument argument, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeString("argumentID", argument.getId());
+        writer.writeInt32("proposalID", argument.getProposalId());
+        writer.writeInt32("userID", argument.userID);
+        writer.writeInt32("commentID", argument.commentID);
+        writer.writeInt32("parentID", argument.parentID);
+        writer.writeString("sentence", argument.getSentenceText());
+        writer.writeBoolean("sentenceSimple", argument.isSentenceSimple());
+        encodeSentence(writer, "majorClaim", argument.getMajorClaim());
+        encodeSentence(writer, "claim", argument.claim);
+        encodeSentence(writer, "premise", argument.premise);
+        writer.writeString("mainVerb", argument.getMainVerb());
+
+        ArgumentLinker linker = argument.linker;
+        writer.writeStartDocument("linker");
+        writer.writeString("linker", linker.getLinker());
+        writer.writeString("category", linker.getCategory());
+        writer.writeString("subCategory", linker.getSubCategory());
+        writer.writeString("relationType", linker.getIntention());
+        writer.writeEndDocument();
+
+        ArgumentPattern pattern = argument.getPattern();
+        writer.writeStartDocument("pattern");
+        writer.writeString("value", pattern.getValue());
+        writer.writeInt32("depth", pattern.getDepth());
+        writer.writeEndDocument();
+
+        if (argument.getSyntacticTree() != null) {
+            writer.writeString("syntacticTree", argument.getSyntacticTree());
+        }
+        writer.writeEndDocument();
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public Class<Argument> getEncoderClass() {
+        return Argument.class;
+    }
+
+    /**
+     * Reads a list of strings, stored as a native array or in the legacy
+     * "[a, b]" text format (a null value is read as an empty list, and null
+     * items are skipped).
+     *
+     * @param reader
+     * @return
+     */
+    public static List<String> decodeList(BsonReader reader) {
+        List<String> list;
+
+        if (reader.getCurrentBsonType() == BsonType.ARRAY) {
+            list = new ArrayList<>();
+            reader.readStartArray();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                if (reader.getCurrentBsonType() == BsonType.NULL) {
+                    reader.readNull();
+                } else {
+                    list.add(reader.readString());
+                }
+            }
+            reader.readEndArray();
+
+        } else if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            list = new ArrayList<>();
+
+        } else {
+            list = Sentence.parseList(reader.readString());
+        }
+
+        return list;
+    }
+
+    /**
+     *
+     * @param reader
+     * @return
+     */
+    private static ArgumentLinker decodeLinker(BsonReader reader) {
+        String category = "";
+        String subCategory = "";
+        String relationType = "";
+        String linker = "";
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "category":
+                    category = reader.readString();
+                    break;
+                case "subCategory":
+                    subCategory = reader.readString();
+                    break;
+                case "relationType":
+                    relationType = reader.readString();
+                    break;
+                case "linker":
+                    linker = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return new ArgumentLinker(category, subCategory, relationType, linker);
+    }
+
+    /**
+     *
+     * @param reader
+     * @return
+     */
+    private static ArgumentPattern decodePattern(BsonReader reader) {
+        String value = "";
+        int depth = 0;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "value":
+                    value = reader.readString();
+                    break;
+                case "depth":
+                    depth = reader.readInt32();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return new ArgumentPattern(value, depth);
+    }
+
+    /**
+     *
+     * @param reader
+     * @return
+     */
+    private static Sentence decodeSentence(BsonReader reader) {
+        String text = "";
+        List<String> nouns = new ArrayList<>();
+        List<String> entities = new ArrayList<>();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "text":
+                    text = reader.readString();
+                    break;
+                case "nouns":
+                    nouns = decodeList(reader);
+                    break;
+                case "entities":
+                    entities = decodeList(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return new Sentence(text, nouns, entities);
+    }
+
+    /**
+     *
+     * @param writer
+     * @param name
+     * @param sentence
+     */
+    private static void encodeSentence(BsonWriter writer, String name, Sentence sentence) {
+        writer.writeStartDocument(name);
+        writer.writeString("text", sentence.getText());
+        writer.writeStartArray("nouns");
+        for (String noun : sentence.getNouns()) {
+            writer.writeString(noun);
+        }
+        writer.writeEndArray();
+        writer.writeStartArray("entities");
+        for (String entity : sentence.getEntities()) {
+            writer.writeString(entity);
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import es.uam.irg.nlp.am.arguments.Argument;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Background synchronization of the arguments changed in MongoDB (by other
+ * annotators or by the miner). The collection is polled for the arguments
+ * changed after a high-water mark, and each batch of changes is passed to a
+ * listener. Polling runs in its own daemon thread.
+ */
+public class ArgumentSync {
+
+    // Class constants
+    private static final long OVERLAP_MS = 1000;
+
+    // Class members
+    private final Consumer<List<Argument>> listener;
+    private MongoDbManager manager;
+    private final Supplier<MongoDbManager> managerFactory;
+    private final Map<String, Date> recent;
+    private ScheduledExecutorService scheduler;
+    private volatile Date watermark;
+
+    /**
+     * Constructor.
+     *
+     * @param manager
+     * @param listener receives the changed arguments (in the sync thread)
+     */
+    public ArgumentSync(MongoDbManager manager, Consumer<List<Argument>> listener) {
+        this(() -> manager, listener);
+    }
+
+    /**
+     * Constructor. The manager is created on the first poll (in the sync
+     * thread), so no connection is made until then.
+     *
+     * @param managerFactory
+     * @param listener receives the changed arguments (in the sync thread)
+     */
+    public ArgumentSync(Supplier<MongoDbManager> managerFactory, Consumer<List<Argument>> listener) {
+        this.manager = null;
+        this.managerFactory = managerFactory;
+        this.listener = listener;
+        this.recent = new HashMap<>();
+        this.scheduler = null;
+        this.watermark = null;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Date getWatermark() {
+        return this.watermark;
+    }
+
+    /**
+     * Sets the initial high-water mark to the latest change in the
+     * collection (call it before loading the arguments, so no change is
+     * missed).
+     */
+    public synchronized void initWatermark() {
+        MongoDbManager manager = getManager();
+        Date latest = manager.selectLatestChange();
+        this.watermark = (latest != null ? latest : new Date(0));
+
+        // The arguments returned again at the mark are already known
+        recent.clear();
+        manager.selectChangedArguments(getSince(), (argument, changed) -> recent.put(argument.getId(), (changed != null ? changed : watermark)));
+    }
+
+    /**
+     * Fetches the arguments changed after the high-water mark, passes them to
+     * the listener and advances the mark. The collection is queried from
+     * OVERLAP_MS before the mark, since a write is stamped when the server
+     * applies it, not when it becomes visible: a concurrent upsert may show
+     * up after a newer one was already polled. The mark is only advanced
+     * after a complete scan.
+     *
+     * @return number of changed arguments
+     */
+    public synchronized int poll() {
+        if (watermark == null) {
+            initWatermark();
+        }
+
+        MongoDbManager manager = getManager();
+        List<Argument> changes = new ArrayList<>();
+        Date mark = watermark;
+        Date[] latest = {mark};
+
+        int nRows = manager.selectChangedArguments(getSince(), (argument, changed) -> {
+            if (changed == null) {
+                changed = mark;
+            }
+            // Skip the arguments already seen at the same change time
+            if (!changed.equals(recent.get(argument.getId()))) {
+                recent.put(argument.getId(), changed);
+                changes.add(argument);
+            }
+            if (changed.after(latest[0])) {
+                latest[0] = changed;
+            }
+        });
+
+        // Advance the mark and forget the changes that can no longer be
+        // returned (the ObjectId branch goes back one more second, rounded
+        // down). After a partial scan, the unread arguments may be older
+        // than the ones read, so the mark is kept.
+        if (nRows >= 0) {
+            watermark = latest[0];
+            long oldest = watermark.getTime() - OVERLAP_MS - 2000;
+            recent.values().removeIf(changed -> changed.getTime() < oldest);
+        }
+
+        if (!changes.isEmpty()) {
+            listener.accept(changes);
+        }
+        return changes.size();
+    }
+
+    /**
+     * Sets the high-water mark (e.g. restored from a snapshot of the loaded
+     * data). The arguments changed at the mark are returned again.
+     *
+     * @param watermark
+     */
+    public synchronized void setWatermark(Date watermark) {
+        this.watermark = watermark;
+        recent.clear();
+    }
+
+    /**
+     * Starts polling with the given period.
+     *
+     * @param periodSeconds
+     */
+    public synchronized void start(int periodSeconds) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "argument-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    poll();
+                } catch (Exception ex) {
+                    System.err.println("MongoDB error: " + ex.getMessage());
+                }
+            }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops polling.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    private MongoDbManager getManager() {
+        if (manager == null) {
+            manager = managerFactory.get();
+        }
+        return manager;
+    }
+
+    /**
+     *
+     * @return
+     */
+    private Date getSince() {
+        return new Date(watermark.getTime() - OVERLAP_MS);
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import com.mongodb.bulk.BulkWriteResult;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of a bulk upsert: write counters and the errors of the items that
+ * could not be written (by item position in the input list).
+ */
+public class BulkUpsertResult {
+
+    // Class members
+    private final Map<Integer, String> errors;
+    private int nMatched;
+    private int nModified;
+    private final int nRequested;
+    private int nUpserted;
+
+    /**
+     * Constructor.
+     *
+     * @param nRequested
+     */
+    public BulkUpsertResult(int nRequested) {
+        this.nRequested = nRequested;
+        this.errors = new TreeMap<>();
+        this.nMatched = 0;
+        this.nModified = 0;
+        this.nUpserted = 0;
+    }
+
+    /**
+     * Returns the error messages of the failed items (by item position).
+     *
+     * @return
+     */
+    public Map<Integer, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMatchedCount() {
+        return this.nMatched;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getModifiedCount() {
+        return this.nModified;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getRequestedCount() {
+        return this.nRequested;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getUpsertedCount() {
+        return this.nUpserted;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return String.format("requested: %d, upserted: %d, matched: %d, modified: %d, errors: %d",
+                nRequested, nUpserted, nMatched, nModified, errors.size());
+    }
+
+    /**
+     *
+     * @param item
+     * @param message
+     */
+    void addError(int item, String message) {
+        errors.put(item, message);
+    }
+
+    /**
+     *
+     * @param result
+     */
+    void addWrites(BulkWriteResult result) {
+        if (result != null && result.wasAcknowledged()) {
+            nMatched += result.getMatchedCount();
+            nModified += result.getModifiedCount();
+            nUpserted += result.getUpserts().size();
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Background refresh of the proposals and comments added to MySQL after the
+ * data was loaded. The tables are polled for the rows whose id is greater
+ * than a high-water mark (the ids are auto-incremented), and each batch of
+ * new rows is passed to a listener. Polling runs in its own daemon thread.
+ */
+public class CorpusSync {
+
+    // Class members
+    private final DMDictionary dictionary;
+    private volatile int lastCommentId;
+    private volatile int lastProposalId;
+    private final Consumer<Delta> listener;
+    private ScheduledExecutorService scheduler;
+    private final Map<String, Object> setup;
+
+    /**
+     * Constructor.
+     *
+     * @param setup MySQL setup
+     * @param dictionary encodes the categories, districts and topics
+     * @param listener receives the new rows (in the sync thread)
+     */
+    public CorpusSync(Map<String, Object> setup, DMDictionary dictionary, Consumer<Delta> listener) {
+        this.setup = setup;
+        this.dictionary = dictionary;
+        this.listener = listener;
+        this.lastProposalId = 0;
+        this.lastCommentId = 0;
+        this.scheduler = null;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getLastCommentId() {
+        return this.lastCommentId;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getLastProposalId() {
+        return this.lastProposalId;
+    }
+
+    /**
+     * Sets the high-water marks to the greatest loaded ids.
+     *
+     * @param proposalIds
+     * @param commentIds
+     */
+    public synchronized void initWatermarks(Collection<Integer> proposalIds, Collection<Integer> commentIds) {
+        this.lastProposalId = (proposalIds.isEmpty() ? 0 : Collections.max(proposalIds));
+        this.lastCommentId = (commentIds.isEmpty() ? 0 : Collections.max(commentIds));
+    }
+
+    /**
+     * Fetches the rows added after the high-water marks, passes them to the
+     * listener and advances the marks.
+     *
+     * @return number of new rows
+     * @throws Exception
+     */
+    public synchronized int poll() throws Exception {
+        Delta delta;
+
+        try ( DMDBManager dbManager = new DMDBManager(setup)) {
+            Map<Integer, DMProposal> proposals = dbManager.selectProposalsAfter(lastProposalId);
+            Map<Integer, DMProposalSummary> summaries = dbManager.selectProposalSummariesAfter(dictionary, lastProposalId);
+            Map<Integer, DMComment> comments = dbManager.selectCommentsAfter(lastCommentId);
+            delta = new Delta(proposals, summaries, comments);
+        }
+
+        if (!delta.proposals.isEmpty()) {
+            lastProposalId = Math.max(lastProposalId, Collections.max(delta.proposals.keySet()));
+        }
+        if (!delta.comments.isEmpty()) {
+            lastCommentId = Math.max(lastCommentId, Collections.max(delta.comments.keySet()));
+        }
+
+        int nRows = delta.proposals.size() + delta.comments.size();
+        if (nRows > 0) {
+            listener.accept(delta);
+        }
+        return nRows;
+    }
+
+    /**
+     * Starts polling with the given period.
+     *
+     * @param periodSeconds
+     */
+    public synchronized void start(int periodSeconds) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "corpus-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    poll();
+                } catch (Exception ex) {
+                    System.err.println("MySQL error: " + ex.getMessage());
+                }
+            }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops polling.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Rows added after the previous poll.
+     */
+    public static class Delta {
+
+        private final Map<Integer, DMComment> comments;
+        private final Map<Integer, DMProposal> proposals;
+        private final Map<Integer, DMProposalSummary> summaries;
+
+        public Delta(Map<Integer, DMProposal> proposals, Map<Integer, DMProposalSummary> summaries, Map<Integer, DMComment> comments) {
+            this.proposals = proposals;
+            this.summaries = summaries;
+            this.comments = comments;
+        }
+
+        public Map<Integer, DMComment> getComments() {
+            return comments;
+        }
+
+        public Map<Integer, DMProposal> getProposals() {
+            return proposals;
+        }
+
+        public Map<Integer, DMProposalSummary> getSummaries() {
+            return summaries;
+        }
+
+    }
+
+}
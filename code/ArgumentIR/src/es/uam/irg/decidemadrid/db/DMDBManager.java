@@ -1,16 +1,30 @@
 package es.uam.irg.decidemadrid.db;
 
+import es.uam.irg.db.ConnectionPool;
 import es.uam.irg.db.MySQLDBConnector;
+import es.uam.irg.db.RowHandler;
 import es.uam.irg.decidemadrid.controversy.ControversyScore;
 import es.uam.irg.decidemadrid.entities.*;
+import es.uam.irg.metrics.events.DbSelectEvent;
+import es.uam.irg.utils.IntObjectMap;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
-public class DMDBManager {
+public class DMDBManager implements AutoCloseable {
 
     // Public constants
     public static final String DB_NAME = "decide.madrid_2019_09";
@@ -18,195 +32,633 @@ public class DMDBManager {
     public static final String DB_USERNAME = "root";
     public static final String DB_USERPASSWORD = "";
 
+    public static final int DEFAULT_PARTITIONS = 4;
+
+    // Private constants
+    private static final String COMMENT_COLUMNS = "id, parentId, proposalId, userId, date, time, numVotes, numPositiveVotes, numNegativeVotes";
+    private static final int[] NO_TERMS = new int[0];
+    private static final String PROPOSAL_COLUMNS = "id, code, title, userId, date, summary, numComments, numSupports, url";
+
     // Private connector object
+    private int batchSize;
     private MySQLDBConnector db;
+    private final String dbName;
+    private final String dbServer;
+    private final String dbUserName;
+    private final String dbUserPassword;
+    private int idleTimeout;
+    private int partitions;
+    private int poolSize;
+    private int validationTimeout;
 
     public DMDBManager() throws Exception {
         this(DB_SERVER, DB_NAME, DB_USERNAME, DB_USERPASSWORD);
     }
 
     public DMDBManager(String dbServer, String dbName, String dbUserName, String dbUserPassword) throws Exception {
-        this.db = new MySQLDBConnector();
-        this.db.connect(dbServer, dbName, dbUserName, dbUserPassword);
+        this.dbServer = dbServer;
+        this.dbName = dbName;
+        this.dbUserName = dbUserName;
+        this.dbUserPassword = dbUserPassword;
+        this.batchSize = MySQLDBConnector.DEFAULT_BATCH_SIZE;
+        this.partitions = DEFAULT_PARTITIONS;
+        this.poolSize = ConnectionPool.DEFAULT_MAX_SIZE;
+        this.idleTimeout = ConnectionPool.DEFAULT_IDLE_TIMEOUT;
+        this.validationTimeout = ConnectionPool.DEFAULT_VALIDATION_TIMEOUT;
+        this.db = this.openConnector();
     }
 
     public DMDBManager(Map<String, Object> setup) throws Exception {
-        String dbServer = setup.get("db_server").toString();
-        String dbName = setup.get("db_name").toString();
-        String dbUserName = setup.get("db_user_name").toString();
-        String dbUserPassword = setup.get("db_user_pw").toString();
-        this.db = new MySQLDBConnector();
-        this.db.connect(dbServer, dbName, dbUserName, dbUserPassword);
+        this.dbServer = setup.get("db_server").toString();
+        this.dbName = setup.get("db_name").toString();
+        this.dbUserName = setup.get("db_user_name").toString();
+        this.dbUserPassword = setup.get("db_user_pw").toString();
+        this.batchSize = getInt(setup, "db_batch_size", MySQLDBConnector.DEFAULT_BATCH_SIZE);
+        this.partitions = getInt(setup, "db_load_partitions", DEFAULT_PARTITIONS);
+        this.poolSize = getInt(setup, "db_pool_size", ConnectionPool.DEFAULT_MAX_SIZE);
+        this.idleTimeout = getInt(setup, "db_pool_idle_timeout", ConnectionPool.DEFAULT_IDLE_TIMEOUT);
+        this.validationTimeout = getInt(setup, "db_pool_validation_timeout", ConnectionPool.DEFAULT_VALIDATION_TIMEOUT);
+        this.db = this.openConnector();
     }
 
+    /**
+     * Returns the connection to the pool.
+     */
     @Override
-    public void finalize() {
+    public void close() {
         this.db.disconnect();
     }
 
-    public Map<Integer, List<DMCommentTree>> selectCommentTrees() throws Exception {
-        Map<Integer, List<DMCommentTree>> proposalTrees = new HashMap<>();
+    /**
+     * Creates the comment trees of each proposal from comments that are
+     * already loaded (no query is run).
+     *
+     * @param comments
+     * @return
+     */
+    public static IntObjectMap<List<DMCommentTree>> createCommentTrees(Collection<DMComment> comments) {
+        IntObjectMap<List<DMComment>> proposalComments = new IntObjectMap<>();
+        for (DMComment comment : comments) {
+            proposalComments.computeIfAbsent(comment.getProposalId(), k -> new ArrayList<>()).add(comment);
+        }
 
-        Map<Integer, List<DMComment>> proposalComments = this.selectProposalComments();
-        List<Integer> proposalIds = new ArrayList<>(proposalComments.keySet());
-        Collections.sort(proposalIds);
+        IntObjectMap<List<DMCommentTree>> proposalTrees = new IntObjectMap<>(proposalComments.size());
+        proposalComments.forEachEntry((proposalId, list) -> {
+            list.sort(Comparator.comparingInt(DMComment::getId));
+            proposalTrees.put(proposalId, DMCommentTree.createTrees(list));
+        });
 
-        for (int proposalId : proposalIds) {
-            proposalTrees.put(proposalId, new ArrayList<>());
-
-            List<DMComment> comments = proposalComments.get(proposalId);
-
-            // Root comments
-            for (DMComment comment : comments) {
-                int commentId = comment.getId();
-                int parentId = comment.getParentId();
-                if (parentId == -1) {
-                    DMCommentTree root = new DMCommentTree(commentId, 0);
-                    if (!proposalTrees.get(proposalId).contains(root)) {
-                        proposalTrees.get(proposalId).add(root);
-                    }
-                }
-            }
+        return proposalTrees;
+    }
 
-            // Root comments' children
-            for (DMCommentTree root : proposalTrees.get(proposalId)) {
-                root.expand(comments);
-            }
+    /**
+     * Replaces the aggregated controversy scores of the proposals with the
+     * given ones, in a single transaction and with batched inserts.
+     *
+     * @param scores
+     * @return number of saved scores
+     * @throws Exception
+     */
+    public int saveProposalControversy(Collection<ControversyScore> scores) throws Exception {
+        int nRows = 0;
+        List<Object[]> rows = new ArrayList<>(scores.size());
+        for (ControversyScore score : scores) {
+            rows.add(new Object[]{score.getId(), score.getValue()});
         }
 
-        return proposalTrees;
+        this.db.beginTransaction();
+        try {
+            this.db.executeUpdate("DELETE FROM metrics_controversy WHERE name = ?;", "AGGREGATION");
+            nRows = this.db.executeBatch("INSERT INTO metrics_controversy (proposalId, name, value) VALUES (?, 'AGGREGATION', ?);", rows, this.batchSize);
+            this.db.commit();
+        } catch (Exception ex) {
+            this.db.rollback();
+            throw ex;
+        }
+
+        return nRows;
     }
 
-    public Map<Integer, DMComment> selectComments() throws Exception {
-        Map<Integer, DMComment> comments = new HashMap<>();
+    public IntObjectMap<List<DMCommentTree>> selectCommentTrees() throws Exception {
+        IntObjectMap<List<DMCommentTree>> proposalTrees = new IntObjectMap<>();
 
-        String query = "SELECT * FROM proposal_comments_2_processed;";
-        ResultSet rs = this.db.executeSelect(query);
+        IntObjectMap<List<DMComment>> proposalComments = this.selectProposalComments();
+        int[] proposalIds = proposalComments.keys();
+        Arrays.sort(proposalIds);
 
-        while (rs != null && rs.next()) {
-            int id = rs.getInt("id");
-            int parentId = rs.getInt("parentId");
-            int proposalId = rs.getInt("proposalId");
-            int userId = rs.getInt("userId");
-            String date = rs.getDate("date").toString();
-            String time = rs.getTime("time").toString();
-            String text = rs.getString("text");
-            int votes = rs.getInt("numVotes");
-            int votesUp = rs.getInt("numPositiveVotes");
-            int votesDown = rs.getInt("numNegativeVotes");
-
-            DMComment comment = new DMComment(id, parentId, proposalId, userId, date, time, text, votes, votesUp, votesDown);
-            comments.put(id, comment);
+        for (int proposalId : proposalIds) {
+            proposalTrees.put(proposalId, DMCommentTree.createTrees(proposalComments.get(proposalId)));
+        }
+
+        return proposalTrees;
+    }
+
+    /**
+     * Loads the texts of the given comments, in batches of ids.
+     *
+     * @param ids
+     * @return
+     * @throws Exception
+     */
+    public Map<Integer, String> selectCommentTexts(Collection<Integer> ids) throws Exception {
+        Map<Integer, String> texts = new HashMap<>();
+        List<Integer> idList = new ArrayList<>(ids);
+
+        for (int from = 0; from < idList.size(); from += this.batchSize) {
+            StringBuilder query = new StringBuilder("SELECT id, text FROM proposal_comments_2_processed WHERE id IN (");
+            for (int i = from; i < Math.min(from + this.batchSize, idList.size()); i++) {
+                query.append(i > from ? "," : "").append((int) idList.get(i));
+            }
+            query.append(");");
+
+            select(this.db, "selectCommentTexts", query.toString(), rs -> {
+                texts.put(rs.getInt("id"), rs.getString("text"));
+            });
         }
-        rs.close();
+
+        return texts;
+    }
+
+    public DMCommentStore selectComments() throws Exception {
+        return this.selectComments(this.partitions);
+    }
+
+    /**
+     * Loads the comments, splitting the table into the given number of
+     * primary key ranges that are read in parallel.
+     *
+     * @param nPartitions
+     * @return
+     * @throws Exception
+     */
+    public DMCommentStore selectComments(int nPartitions) throws Exception {
+        List<DMCommentStore> partials = this.selectPartitions("selectComments", "proposal_comments_2_processed", COMMENT_COLUMNS, nPartitions, DMCommentStore::new, (rs, partial) -> {
+            readComment(rs, partial);
+        });
+
+        DMCommentStore comments = new DMCommentStore(getMergedSize(partials));
+        partials.forEach(comments::addAll);
+        comments.compact();
 
         return comments;
     }
 
-    public Map<Integer, List<DMComment>> selectProposalComments() throws Exception {
-        Map<Integer, List<DMComment>> comments = new HashMap<>();
+    /**
+     * Loads the comments added after the given id.
+     *
+     * @param lastId
+     * @return
+     * @throws Exception
+     */
+    public IntObjectMap<DMComment> selectCommentsAfter(int lastId) throws Exception {
+        IntObjectMap<DMComment> comments = new IntObjectMap<>();
+
+        String query = "SELECT " + COMMENT_COLUMNS + " FROM proposal_comments_2_processed WHERE id > " + lastId + ";";
+        select(this.db, "selectCommentsAfter", query, rs -> {
+            DMComment comment = readComment(rs);
+            comments.put(comment.getId(), comment);
+        });
 
-        String query = "SELECT * FROM proposal_comments_2_processed;";
-        ResultSet rs = this.db.executeSelect(query);
+        return comments;
+    }
 
-        while (rs != null && rs.next()) {
-            int id = rs.getInt("id");
-            int parentId = rs.getInt("parentId");
-            int proposalId = rs.getInt("proposalId");
-            int userId = rs.getInt("userId");
-            String date = rs.getDate("date").toString();
-            String time = rs.getTime("time").toString();
-            String text = rs.getString("text");
-            int votes = rs.getInt("numVotes");
-            int votesUp = rs.getInt("numPositiveVotes");
-            int votesDown = rs.getInt("numNegativeVotes");
-
-            DMComment comment = new DMComment(id, parentId, proposalId, userId, date, time, text, votes, votesUp, votesDown);
-            if (!comments.containsKey(proposalId)) {
-                comments.put(proposalId, new ArrayList<>());
-            }
-            comments.get(proposalId).add(comment);
+    public IntObjectMap<List<DMComment>> selectProposalComments() throws Exception {
+        List<IntObjectMap<List<DMComment>>> partials = this.selectPartitions("selectProposalComments", "proposal_comments_2_processed", COMMENT_COLUMNS, this.partitions, IntObjectMap::new, (rs, partial) -> {
+            DMComment comment = readComment(rs);
+            partial.computeIfAbsent(comment.getProposalId(), k -> new ArrayList<>()).add(comment);
+        });
+
+        IntObjectMap<List<DMComment>> comments = new IntObjectMap<>(getMergedSize(partials));
+        for (IntObjectMap<List<DMComment>> partial : partials) {
+            partial.forEachEntry((proposalId, list) -> comments.computeIfAbsent(proposalId, k -> new ArrayList<>()).addAll(list));
         }
-        rs.close();
 
         return comments;
     }
 
-    public Map<Integer, ControversyScore> selectProposalControversy() throws Exception {
-        Map<Integer, ControversyScore> controversyScores = new HashMap<>();
+    public IntObjectMap<ControversyScore> selectProposalControversy() throws Exception {
+        IntObjectMap<ControversyScore> controversyScores = new IntObjectMap<>();
 
         String query = "SELECT proposalId, value"
                 + "	  FROM metrics_controversy"
                 + "	 WHERE name = 'AGGREGATION';";
-        ResultSet rs = this.db.executeSelect(query);
-
-        while (rs != null && rs.next()) {
+        select(this.db, "selectProposalControversy", query, rs -> {
             int proposalId = rs.getInt("proposalId");
             double value = rs.getDouble("value");
 
             ControversyScore score = new ControversyScore(proposalId, value);
             controversyScores.put(proposalId, score);
-        }
-        rs.close();
+        });
 
         return controversyScores;
     }
 
-    public Map<Integer, DMProposal> selectProposals() throws Exception {
-        Map<Integer, DMProposal> proposals = new HashMap<>();
+    public IntObjectMap<DMProposal> selectProposals() throws Exception {
+        return this.selectProposals(this.partitions);
+    }
 
-        String query = "SELECT * FROM proposals_2_processed;";
-        ResultSet rs = this.db.executeSelect(query);
+    /**
+     * Loads the proposals, splitting the table into the given number of
+     * primary key ranges that are read in parallel.
+     *
+     * @param nPartitions
+     * @return
+     * @throws Exception
+     */
+    public IntObjectMap<DMProposal> selectProposals(int nPartitions) throws Exception {
+        List<IntObjectMap<DMProposal>> partials = this.selectPartitions("selectProposals", "proposals_2_processed", PROPOSAL_COLUMNS, nPartitions, IntObjectMap::new, (rs, partial) -> {
+            DMProposal proposal = readProposal(rs);
+            partial.put(proposal.getId(), proposal);
+        });
+
+        IntObjectMap<DMProposal> proposals = new IntObjectMap<>(getMergedSize(partials));
+        partials.forEach(partial -> partial.forEachEntry(proposals::put));
 
-        while (rs != null && rs.next()) {
-            int id = rs.getInt("id");
-            String code = rs.getString("code");
-            String title = rs.getString("title");
-            int userId = rs.getInt("userId");
-            String date = rs.getString("date");
-            String summary = rs.getString("summary");
-            String text = rs.getString("text");
-            int numComments = rs.getInt("numComments");
-            int numSupports = rs.getInt("numSupports");
-            String url = rs.getString("url");
+        return proposals;
+    }
 
-            DMProposal proposal = new DMProposal(id, code, title, userId, date, summary, text, numComments, numSupports, url);
-            proposals.put(id, proposal);
-        }
-        rs.close();
+    /**
+     * Loads the proposals added after the given id.
+     *
+     * @param lastId
+     * @return
+     * @throws Exception
+     */
+    public IntObjectMap<DMProposal> selectProposalsAfter(int lastId) throws Exception {
+        IntObjectMap<DMProposal> proposals = new IntObjectMap<>();
+
+        String query = "SELECT " + PROPOSAL_COLUMNS + " FROM proposals_2_processed WHERE id > " + lastId + ";";
+        select(this.db, "selectProposalsAfter", query, rs -> {
+            DMProposal proposal = readProposal(rs);
+            proposals.put(proposal.getId(), proposal);
+        });
 
         return proposals;
     }
 
-    public Map<Integer, DMProposalSummary> selectProposalSummaries() throws Exception {
-        Map<Integer, DMProposalSummary> proposals = new HashMap<>();
-
-        String query = "SELECT p.id, "
-                + "       IFNULL(GROUP_CONCAT(DISTINCT pc.category), '') AS categories, "
-                + "       IFNULL(GROUP_CONCAT(DISTINCT pd.district), '') AS districts, "
-                + "       IFNULL(GROUP_CONCAT(DISTINCT pt.topic), '') AS topic "
-                + "  FROM proposals_2_processed AS p "
-                + "  LEFT OUTER JOIN "
-                + "       proposal_categories AS pc ON p.id = pc.id "
-                + "  LEFT OUTER JOIN "
-                + "       proposal_locations AS pd ON p.id = pd.id "
-                + "  LEFT OUTER JOIN "
-                + "       proposal_topics AS pt ON p.id = pt.id "
-                + " GROUP BY p.id, p.date, p.title;";
-        ResultSet rs = this.db.executeSelect(query);
-
-        while (rs != null && rs.next()) {
-            int id = rs.getInt("id");
-            String categories = rs.getString("categories").toLowerCase();
-            String districts = rs.getString("districts").toLowerCase();
-            String topics = rs.getString("topic").toLowerCase();
-
-            DMProposalSummary proposal = new DMProposalSummary(id, categories, districts, topics);
-            proposals.put(id, proposal);
+    public IntObjectMap<DMProposalSummary> selectProposalSummaries() throws Exception {
+        return this.selectProposalSummaries(DMDictionary.getInstance());
+    }
+
+    /**
+     * Loads the categories, districts and topics of the proposals with three
+     * keyed scans (instead of a GROUP_CONCAT over a triple join), encoding
+     * the lower-cased terms with the given dictionary.
+     *
+     * @param dictionary
+     * @return
+     * @throws Exception
+     */
+    public IntObjectMap<DMProposalSummary> selectProposalSummaries(DMDictionary dictionary) throws Exception {
+        return this.selectProposalSummaries(dictionary, "");
+    }
+
+    /**
+     * Loads the summaries of the proposals added after the given id.
+     *
+     * @param dictionary
+     * @param lastId
+     * @return
+     * @throws Exception
+     */
+    public IntObjectMap<DMProposalSummary> selectProposalSummariesAfter(DMDictionary dictionary, int lastId) throws Exception {
+        return this.selectProposalSummaries(dictionary, " WHERE id > " + lastId);
+    }
+
+    /**
+     * Appends a term id to a (small) list of ids, unless it is already there.
+     *
+     * @param ids
+     * @param id
+     * @return
+     */
+    private static int[] addTerm(int[] ids, int id) {
+        for (int value : ids) {
+            if (value == id) {
+                return ids;
+            }
         }
-        rs.close();
+        int[] newIds = Arrays.copyOf(ids, ids.length + 1);
+        newIds[ids.length] = id;
+        return newIds;
+    }
+
+    /**
+     *
+     * @param setup
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    private static int getInt(Map<String, Object> setup, String key, int defaultValue) {
+        Object value = setup.get(key);
+        return (value != null ? Integer.parseInt(value.toString()) : defaultValue);
+    }
+
+    /**
+     * Returns the total number of entries of the given partial results.
+     *
+     * @param partials
+     * @return
+     */
+    private static int getMergedSize(List<? extends Map<?, ?>> partials) {
+        int size = 0;
+        for (Map<?, ?> partial : partials) {
+            size += partial.size();
+        }
+        return size;
+    }
+
+    /**
+     * Reads the metadata of a comment (all but the text) from the current row
+     * of a result set.
+     *
+     * @param rs
+     * @return
+     * @throws SQLException
+     */
+    private static DMComment readComment(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        int parentId = rs.getInt("parentId");
+        int proposalId = rs.getInt("proposalId");
+        int userId = rs.getInt("userId");
+        String date = rs.getDate("date").toString();
+        String time = rs.getTime("time").toString();
+        int votes = rs.getInt("numVotes");
+        int votesUp = rs.getInt("numPositiveVotes");
+        int votesDown = rs.getInt("numNegativeVotes");
+
+        return new DMComment(id, parentId, proposalId, userId, date, time, null, votes, votesUp, votesDown);
+    }
+
+    /**
+     * Appends the metadata of a comment (all but the text) from the current
+     * row of a result set to a comment store.
+     *
+     * @param rs
+     * @param store
+     * @throws SQLException
+     */
+    private static void readComment(ResultSet rs, DMCommentStore store) throws SQLException {
+        long created = DMCommentStore.toEpochSeconds(rs.getDate("date").toLocalDate(), rs.getTime("time").toLocalTime());
+        store.add(rs.getInt("id"), rs.getInt("parentId"), rs.getInt("proposalId"), rs.getInt("userId"), created, null,
+                rs.getInt("numVotes"), rs.getInt("numPositiveVotes"), rs.getInt("numNegativeVotes"));
+    }
+
+    /**
+     * Reads the metadata of a proposal (all but the text) from the current row
+     * of a result set.
+     *
+     * @param rs
+     * @return
+     * @throws SQLException
+     */
+    private static DMProposal readProposal(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String code = rs.getString("code");
+        String title = rs.getString("title");
+        int userId = rs.getInt("userId");
+        String date = rs.getString("date");
+        String summary = rs.getString("summary");
+        int numComments = rs.getInt("numComments");
+        int numSupports = rs.getInt("numSupports");
+        String url = rs.getString("url");
+
+        return new DMProposal(id, code, title, userId, date, summary, null, numComments, numSupports, url);
+    }
+
+    /**
+     * Borrows a new pooled connection to the database.
+     *
+     * @return
+     * @throws Exception
+     */
+    private MySQLDBConnector openConnector() throws Exception {
+        MySQLDBConnector connector = new MySQLDBConnector();
+        connector.setPoolOptions(this.poolSize, this.idleTimeout, this.validationTimeout);
+        connector.connect(this.dbServer, this.dbName, this.dbUserName, this.dbUserPassword);
+        return connector;
+    }
+
+    /**
+     * Borrows a new pooled connection to the database, only if the pool has a
+     * free one right now.
+     *
+     * @return the connector, or null if all the connections are in use
+     * @throws Exception
+     */
+    private MySQLDBConnector tryOpenConnector() throws Exception {
+        MySQLDBConnector connector = new MySQLDBConnector();
+        connector.setPoolOptions(this.poolSize, this.idleTimeout, this.validationTimeout);
+        if (!connector.tryConnect(this.dbServer, this.dbName, this.dbUserName, this.dbUserPassword)) {
+            connector.close();
+            return null;
+        }
+        return connector;
+    }
+
+    /**
+     * Runs a streaming select, recording it as a DbSelectEvent with the number
+     * of rows and bytes read.
+     *
+     * @param connector
+     * @param operation
+     * @param query
+     * @param handler
+     * @return number of rows read
+     * @throws Exception
+     */
+    private static int select(MySQLDBConnector connector, String operation, String query, RowHandler handler) throws Exception {
+        DbSelectEvent event = DbSelectEvent.begin(MySQLDBConnector.DB_TYPE, operation, query);
+        int nRows = connector.executeSelect(query, rs -> {
+            event.addRowBytes(rs);
+            handler.processRow(rs);
+        });
+        event.commit(nRows);
+        return nRows;
+    }
+
+    /**
+     * Loads a table keyed by an integer 'id' column. The [MIN(id), MAX(id)]
+     * range is split into nPartitions ranges, each one read into its own
+     * partial result, so no locking is needed. The ranges are taken from a
+     * shared queue by the connection of this manager and by the extra pooled
+     * connections that are free when the load starts (the pool is shared with
+     * other loaders, so the load never waits for a connection). The partial
+     * results are returned in key order, to be merged by the caller.
+     *
+     * @param <T>
+     * @param operation
+     * @param table
+     * @param columns
+     * @param nPartitions
+     * @param builder creates an empty partial result
+     * @param reader adds a row to a partial result
+     * @return
+     * @throws Exception
+     */
+    private <T> List<T> selectPartitions(String operation, String table, String columns, int nPartitions, Supplier<T> builder, PartitionReader<T> reader) throws Exception {
+        List<T> partials = new ArrayList<>();
+
+        nPartitions = Math.max(1, nPartitions);
+        if (nPartitions == 1) {
+            T partial = builder.get();
+            String query = "SELECT " + columns + " FROM " + table + ";";
+            select(this.db, operation, query, rs -> reader.readRow(rs, partial));
+            partials.add(partial);
+            return partials;
+        }
+
+        // Key ranges
+        long[] range = {0, -1};
+        this.db.executeSelect("SELECT MIN(id), MAX(id) FROM " + table + ";", rs -> {
+            range[0] = rs.getLong(1);
+            range[1] = (rs.wasNull() ? -1 : rs.getLong(2));
+        });
+        if (range[1] < range[0]) {
+            partials.add(builder.get());
+            return partials;
+        }
+        long step = (range[1] - range[0]) / nPartitions + 1;
+        List<String> queries = new ArrayList<>();
+        for (long from = range[0]; from <= range[1]; from += step) {
+            queries.add("SELECT " + columns + " FROM " + table + " WHERE id >= " + from + " AND id < " + (from + step) + ";");
+        }
+        List<T> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        AtomicInteger next = new AtomicInteger(0);
+        PartitionTask task = connector -> {
+            int ix;
+            while ((ix = next.getAndIncrement()) < queries.size()) {
+                T partial = builder.get();
+                select(connector, operation, queries.get(ix), rs -> reader.readRow(rs, partial));
+                results.set(ix, partial);
+            }
+        };
+
+        // Extra connections (only the free ones)
+        List<MySQLDBConnector> connectors = new ArrayList<>();
+        ExecutorService executor = null;
+        Throwable failure = null;
+        try {
+            MySQLDBConnector connector;
+            while (connectors.size() < queries.size() - 1 && (connector = this.tryOpenConnector()) != null) {
+                connectors.add(connector);
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            if (!connectors.isEmpty()) {
+                executor = Executors.newFixedThreadPool(connectors.size(), r -> {
+                    Thread thread = new Thread(r, "db-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                for (MySQLDBConnector extra : connectors) {
+                    futures.add(executor.submit(() -> {
+                        task.run(extra);
+                        return null;
+                    }));
+                }
+            }
+            try {
+                task.run(this.db);
+            } catch (Exception ex) {
+                // The other connections stop after their current range
+                next.set(queries.size());
+                throw ex;
+            } finally {
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException ex) {
+                        failure = (failure != null ? failure : ex.getCause());
+                    }
+                }
+            }
+
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            connectors.forEach(MySQLDBConnector::close);
+        }
+        if (failure != null) {
+            throw (failure instanceof Exception ? (Exception) failure : new ExecutionException(failure));
+        }
+
+        partials.addAll(results);
+        return partials;
+    }
+
+    /**
+     * Loads the summaries of the proposals that match the given filter (a
+     * WHERE clause on the proposal id, or an empty string).
+     *
+     * @param dictionary
+     * @param filter
+     * @return
+     * @throws Exception
+     */
+    private IntObjectMap<DMProposalSummary> selectProposalSummaries(DMDictionary dictionary, String filter) throws Exception {
+        IntObjectMap<int[][]> proposalTerms = new IntObjectMap<>();
+
+        String query = "SELECT id FROM proposals_2_processed" + filter + ";";
+        select(this.db, "selectProposalSummaries", query, rs -> {
+            proposalTerms.put(rs.getInt("id"), new int[][]{NO_TERMS, NO_TERMS, NO_TERMS});
+        });
+
+        this.selectProposalTerms("SELECT id, category FROM proposal_categories" + filter + ";", 0, proposalTerms, dictionary);
+        this.selectProposalTerms("SELECT id, district FROM proposal_locations" + filter + ";", 1, proposalTerms, dictionary);
+        this.selectProposalTerms("SELECT id, topic FROM proposal_topics" + filter + ";", 2, proposalTerms, dictionary);
+
+        IntObjectMap<DMProposalSummary> proposals = new IntObjectMap<>(proposalTerms.size());
+        proposalTerms.forEachEntry((id, terms) -> {
+            proposals.put(id, new DMProposalSummary(id, terms[0], terms[1], terms[2], dictionary));
+        });
 
         return proposals;
     }
 
+    /**
+     * Scans a (proposal id, term) table and adds the distinct terms of each
+     * known proposal to the given column of its term lists.
+     *
+     * @param query
+     * @param column
+     * @param proposalTerms
+     * @param dictionary
+     * @throws Exception
+     */
+    private void selectProposalTerms(String query, int column, IntObjectMap<int[][]> proposalTerms, DMDictionary dictionary) throws Exception {
+        select(this.db, "selectProposalTerms", query, rs -> {
+            int[][] terms = proposalTerms.get(rs.getInt(1));
+            String term = rs.getString(2);
+            term = (term != null ? DMDictionary.normalize(term) : "");
+            if (terms != null && !term.isEmpty()) {
+                terms[column] = addTerm(terms[column], dictionary.encode(term));
+            }
+        });
+    }
+
+    /**
+     * Adds a row of a result set to a partial result.
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    private interface PartitionReader<T> {
+
+        void readRow(ResultSet rs, T partial) throws SQLException;
+
+    }
+
+    /**
+     * Reads the pending key ranges over a connection.
+     */
+    @FunctionalInterface
+    private interface PartitionTask {
+
+        void run(MySQLDBConnector connector) throws Exception;
+
+    }
+
 }
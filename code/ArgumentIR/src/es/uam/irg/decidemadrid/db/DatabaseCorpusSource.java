@@ -0,0 +1,104 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import es.uam.irg.decidemadrid.controversy.ControversyScore;
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.io.CorpusSource;
+import es.uam.irg.nlp.am.arguments.Argument;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Corpus source backed by the MySQL and MongoDB databases. Each call borrows
+ * its own pooled MySQL connection, so calls can run in parallel.
+ */
+public class DatabaseCorpusSource implements CorpusSource {
+
+    // Class members
+    private final Map<String, Object> mdbSetup;
+    private final Map<String, Object> msqlSetup;
+
+    /**
+     * Constructor.
+     *
+     * @param msqlSetup
+     * @param mdbSetup
+     */
+    public DatabaseCorpusSource(Map<String, Object> msqlSetup, Map<String, Object> mdbSetup) {
+        this.msqlSetup = msqlSetup;
+        this.mdbSetup = mdbSetup;
+    }
+
+    @Override
+    public boolean isOnline() {
+        return true;
+    }
+
+    @Override
+    public String loadArgumentSyntacticTree(String argumentId) {
+        MongoDbManager mngManager = new MongoDbManager(mdbSetup);
+        return mngManager.selectArgumentSyntacticTree(argumentId);
+    }
+
+    @Override
+    public Map<Integer, String> loadCommentTexts(Collection<Integer> ids) throws Exception {
+        try ( DMDBManager dbManager = new DMDBManager(msqlSetup)) {
+            return dbManager.selectCommentTexts(ids);
+        }
+    }
+
+    @Override
+    public Map<Integer, DMComment> loadComments() throws Exception {
+        try ( DMDBManager dbManager = new DMDBManager(msqlSetup)) {
+            return dbManager.selectComments();
+        }
+    }
+
+    @Override
+    public Map<Integer, ControversyScore> loadControversyScores() throws Exception {
+        try ( DMDBManager dbManager = new DMDBManager(msqlSetup)) {
+            return dbManager.selectProposalControversy();
+        }
+    }
+
+    @Override
+    public Map<Integer, List<Argument>> loadProposalArguments(int maxTreeLevel) {
+        MongoDbManager mngManager = new MongoDbManager(mdbSetup);
+        return mngManager.selectProposalArguments(maxTreeLevel);
+    }
+
+    @Override
+    public Map<Integer, DMProposal> loadProposals() throws Exception {
+        try ( DMDBManager dbManager = new DMDBManager(msqlSetup)) {
+            return dbManager.selectProposals();
+        }
+    }
+
+    @Override
+    public Map<Integer, DMProposalSummary> loadProposalSummaries(DMDictionary dictionary) throws Exception {
+        try ( DMDBManager dbManager = new DMDBManager(msqlSetup)) {
+            return dbManager.selectProposalSummaries(dictionary);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Application-scoped MongoDB clients. A MongoClient is thread-safe and owns a
+ * connection pool and its monitoring threads, so a single client is created
+ * per server (host and port) and shared by all MongoDbManager instances. The
+ * clients are closed on JVM shutdown.
+ */
+public class MongoClientProvider {
+
+    // Class constants
+    public static final int DEFAULT_MAX_WAIT_MS = 10000;
+    public static final int DEFAULT_MIN_POOL_SIZE = 0;
+    public static final int DEFAULT_POOL_SIZE = 20;
+
+    // Shared clients (by server address)
+    private static final Map<String, MongoClient> CLIENTS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(MongoClientProvider::closeAll, "mongo-client-close"));
+    }
+
+    /**
+     * Private constructor.
+     */
+    private MongoClientProvider() {
+    }
+
+    /**
+     * Closes all the shared clients.
+     */
+    public static void closeAll() {
+        CLIENTS.values().forEach(MongoClient::close);
+        CLIENTS.clear();
+    }
+
+    /**
+     * Returns the shared client of a server (creating it with the default pool
+     * options if needed).
+     *
+     * @param server
+     * @param port
+     * @return
+     */
+    public static MongoClient getClient(String server, int port) {
+        return getClient(server, port, createOptions(DEFAULT_POOL_SIZE, DEFAULT_MIN_POOL_SIZE, DEFAULT_MAX_WAIT_MS));
+    }
+
+    /**
+     * Returns the shared client of a server. The pool options are only used
+     * when the client is created (the first time the server is requested).
+     *
+     * @param server
+     * @param port
+     * @param options
+     * @return
+     */
+    public static MongoClient getClient(String server, int port, MongoClientOptions options) {
+        String key = server + ":" + port;
+        return CLIENTS.computeIfAbsent(key, k -> new MongoClient(new ServerAddress(server, port), options));
+    }
+
+    /**
+     * Returns the shared client of the server defined in a setup dictionary.
+     * The optional keys db_pool_size, db_min_pool_size and db_max_wait_ms
+     * configure the connection pool.
+     *
+     * @param setup
+     * @return
+     */
+    public static MongoClient getClient(Map<String, Object> setup) {
+        String server = setup.get("db_server").toString();
+        int port = Integer.parseInt(setup.get("db_port").toString());
+        int poolSize = getInt(setup, "db_pool_size", DEFAULT_POOL_SIZE);
+        int minPoolSize = getInt(setup, "db_min_pool_size", DEFAULT_MIN_POOL_SIZE);
+        int maxWaitMs = getInt(setup, "db_max_wait_ms", DEFAULT_MAX_WAIT_MS);
+        return getClient(server, port, createOptions(poolSize, minPoolSize, maxWaitMs));
+    }
+
+    /**
+     *
+     * @param poolSize
+     * @param minPoolSize
+     * @param maxWaitMs
+     * @return
+     */
+    private static MongoClientOptions createOptions(int poolSize, int minPoolSize, int maxWaitMs) {
+        return MongoClientOptions.builder()
+                .connectionsPerHost(poolSize)
+                .minConnectionsPerHost(Math.min(minPoolSize, poolSize))
+                .maxWaitTime(maxWaitMs)
+                .build();
+    }
+
+    /**
+     *
+     * @param setup
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    private static int getInt(Map<String, Object> setup, String key, int defaultValue) {
+        Object value = setup.get(key);
+        return (value != null ? Integer.parseInt(value.toString()) : defaultValue);
+    }
+
+}
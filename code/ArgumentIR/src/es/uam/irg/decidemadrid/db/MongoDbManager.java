@@ -17,23 +17,43 @@
  */
 package es.uam.irg.decidemadrid.db;
 
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClient;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
+import es.uam.irg.metrics.events.DbSelectEvent;
 import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.nlp.am.arguments.Sentence;
+import es.uam.irg.utils.IntObjectMap;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
 /**
  *
@@ -46,9 +66,24 @@ public class MongoDbManager {
     public static final String DB_NAME = "decide_madrid_2019_09";
     public static final int DB_PORT = 27017;
     public static final String DB_SERVER = "localhost";
+    public static final String DB_TYPE = "MongoDB";
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_BULK_SIZE = 500;
+    public static final int MAX_RETRIES = 2;
+    public static final int MAX_IN_IDS = 10000;
+    public static final String UPDATED_AT = "updatedAt";
     private static final String NO_TOPIC = "-";
+    private static final ArgumentCodec ARGUMENT_CODEC = new ArgumentCodec();
+    private static final CodecRegistry CODEC_REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(ARGUMENT_CODEC), MongoClient.getDefaultCodecRegistry());
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final Bson NO_SYNTACTIC_TREE = Projections.exclude("syntacticTree");
 
-    // Private connector object
+    // Collections whose indexes have already been created
+    private static final Set<String> INDEXED_COLLECTIONS = ConcurrentHashMap.newKeySet();
+
+    // Private connector object (shared client, see MongoClientProvider)
+    private int batchSize;
     private String collName;
     private MongoDatabase db;
     private MongoClient mongoClient;
@@ -61,6 +96,8 @@ public class MongoDbManager {
     }
 
     /**
+     * Manager constructor. The client of the server is shared, so creating a
+     * manager is cheap and it does not need to be closed.
      *
      * @param client
      * @param port
@@ -68,9 +105,11 @@ public class MongoDbManager {
      * @param collection
      */
     public MongoDbManager(String client, int port, String database, String collection) {
-        this.mongoClient = new MongoClient(client, port);
+        this.mongoClient = MongoClientProvider.getClient(client, port);
         this.db = mongoClient.getDatabase(database);
         this.collName = collection;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        createIndexes();
     }
 
     /**
@@ -78,14 +117,14 @@ public class MongoDbManager {
      * @param setup
      */
     public MongoDbManager(Map<String, Object> setup) {
-        String client = setup.get("db_server").toString();
-        int port = Integer.parseInt(setup.get("db_port").toString());
         String database = setup.get("db_name").toString();
         String collection = setup.get("db_collection").toString();
 
-        this.mongoClient = new MongoClient(client, port);
+        this.mongoClient = MongoClientProvider.getClient(setup);
         this.db = mongoClient.getDatabase(database);
         this.collName = collection;
+        this.batchSize = (setup.containsKey("db_batch_size") ? Integer.parseInt(setup.get("db_batch_size").toString()) : DEFAULT_BATCH_SIZE);
+        createIndexes();
 
     }
 
@@ -97,71 +136,326 @@ public class MongoDbManager {
      */
     public List<Document> getDocumentsByFilter(String topic, Integer[] customProposalIds) {
         List<Document> docs = new ArrayList<>();
-        int proposalID;
+        getDocumentsByFilter(topic, customProposalIds, docs::add);
+        return docs;
+    }
 
-        try {
-            Set<Integer> setIds = new HashSet(Arrays.asList(customProposalIds));
+    /**
+     * Streams the documents that match a topic (text search) and a set of
+     * proposal IDs to the handler. The ID filter runs on the server, split in
+     * chunks of at most MAX_IN_IDS values.
+     *
+     * @param topic
+     * @param customProposalIds (empty for all proposals)
+     * @param handler
+     * @return number of documents
+     */
+    public int getDocumentsByFilter(String topic, Integer[] customProposalIds, Consumer<Document> handler) {
+        int nDocs = 0;
+        DbSelectEvent event = DbSelectEvent.begin(DB_TYPE, "getDocumentsByFilter", collName);
 
-            // Query documents
+        try {
             MongoCollection<Document> collection = db.getCollection(collName);
-            FindIterable<Document> cursor = null;
-            if (!topic.equals(NO_TOPIC)) {
-                cursor = collection.find(Filters.text(topic));
-            } else {
-                cursor = collection.find();
+            Bson topicFilter = (!topic.equals(NO_TOPIC) ? Filters.text(topic) : null);
+            List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(customProposalIds)));
+
+            // Query documents (one query per chunk of IDs)
+            int nChunks = Math.max(1, (ids.size() + MAX_IN_IDS - 1) / MAX_IN_IDS);
+            for (int i = 0; i < nChunks; i++) {
+                List<Bson> filters = new ArrayList<>();
+                if (topicFilter != null) {
+                    filters.add(topicFilter);
+                }
+                if (!ids.isEmpty()) {
+                    filters.add(Filters.in("proposalID", ids.subList(i * MAX_IN_IDS, Math.min((i + 1) * MAX_IN_IDS, ids.size()))));
+                }
+
+                Bson filter = (filters.isEmpty() ? new Document() : (filters.size() == 1 ? filters.get(0) : Filters.and(filters)));
+                try ( MongoCursor<Document> cursor = collection.find(filter).batchSize(batchSize).iterator()) {
+                    while (cursor.hasNext()) {
+                        handler.accept(cursor.next());
+                        nDocs++;
+                    }
+                }
+            }
+
+        } catch (Exception ex) {
+            System.err.println("MongoDB error: " + ex.getMessage());
+        }
+        event.commit(nDocs);
+
+        return nDocs;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Sets the number of documents fetched per round trip by the cursors.
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the time of the latest change in the collection (the maximum
+     * updatedAt value or, for documents written by other tools, ObjectId
+     * creation time). Returns null if the collection is empty.
+     *
+     * @return
+     */
+    public Date selectLatestChange() {
+        Date latest = null;
+
+        try {
+            MongoCollection<RawBsonDocument> collection = db.getCollection(collName, RawBsonDocument.class);
+            RawBsonDocument lastUpdated = collection.find(Filters.exists(UPDATED_AT))
+                    .projection(Projections.include(UPDATED_AT))
+                    .sort(Sorts.descending(UPDATED_AT))
+                    .first();
+            RawBsonDocument lastCreated = collection.find()
+                    .projection(Projections.include("_id"))
+                    .sort(Sorts.descending("_id"))
+                    .first();
+            latest = getLatestChange(lastUpdated, latest);
+            latest = getLatestChange(lastCreated, latest);
+
+        } catch (Exception ex) {
+            System.err.println("MongoDB error: " + ex.getMessage());
+        }
+
+        return latest;
+    }
+
+    /**
+     * Streams the arguments changed since the given time (updatedAt, or
+     * ObjectId creation time for documents without it) to the handler,
+     * together with their change time. Since ObjectIds only have a precision
+     * of seconds, the arguments changed in the second before the given time
+     * are also returned, so handlers must skip the ones already seen. The
+     * arguments are not sorted, so if the scan fails partway the ones not
+     * reached yet may have earlier change times than the ones returned.
+     *
+     * @param since
+     * @param handler
+     * @return number of arguments, or -1 if the scan failed
+     */
+    public int selectChangedArguments(Date since, BiConsumer<Argument, Date> handler) {
+        int nRows = 0;
+        DbSelectEvent event = DbSelectEvent.begin(DB_TYPE, "selectChangedArguments", collName);
+
+        try {
+            // Smallest ObjectId of the second before the given time
+            ObjectId sinceId = new ObjectId(String.format("%08x%016x", since.toInstant().getEpochSecond() - 1, 0));
+            Bson filter = Filters.or(Filters.gte(UPDATED_AT, since),
+                    Filters.and(Filters.exists(UPDATED_AT, false), Filters.gte("_id", sinceId)));
+
+            MongoCollection<RawBsonDocument> collection = db.getCollection(collName, RawBsonDocument.class);
+            try ( MongoCursor<RawBsonDocument> cursor = collection.find(filter).projection(NO_SYNTACTIC_TREE).batchSize(batchSize).iterator()) {
+                while (cursor.hasNext()) {
+                    RawBsonDocument raw = cursor.next();
+                    Argument argument = ARGUMENT_CODEC.decode(raw.asBsonReader(), DecoderContext.builder().build());
+                    handler.accept(argument, getLatestChange(raw, null));
+                    nRows++;
+                }
             }
+            event.commit(nRows);
+
+        } catch (Exception ex) {
+            System.err.println("MongoDB error: " + ex.getMessage());
+            event.commit(nRows);
+            return -1;
+        }
+
+        return nRows;
+    }
+
+    /**
+     * Converts the nouns and entities of the sentences stored in the legacy
+     * "[a, b]" text format into native BSON arrays.
+     *
+     * @return number of migrated documents
+     */
+    public int migrateSentenceLists() {
+        String[] fields = {"majorClaim", "claim", "premise"};
+        List<Bson> legacy = new ArrayList<>();
+        List<UpdateOneModel<Document>> requests = new ArrayList<>();
+        int nDocs = 0;
+
+        for (String field : fields) {
+            legacy.add(Filters.type(field + ".nouns", BsonType.STRING));
+            legacy.add(Filters.type(field + ".entities", BsonType.STRING));
+        }
+
+        try {
+            MongoCollection<Document> collection = db.getCollection(collName);
+            FindIterable<Document> cursor = collection.find(Filters.or(legacy))
+                    .projection(Projections.include(fields))
+                    .batchSize(batchSize);
 
             for (Iterator<Document> it = cursor.iterator(); it.hasNext();) {
                 Document doc = it.next();
-                proposalID = (int) doc.get("proposalID");
-                if (setIds.isEmpty() || setIds.contains(proposalID)) {
-                    docs.add(doc);
+                Document update = new Document();
+                for (String field : fields) {
+                    Document value = doc.get(field, Document.class);
+                    if (value != null) {
+                        Sentence sentence = new Sentence(value);
+                        update.append(field + ".nouns", sentence.getNouns());
+                        update.append(field + ".entities", sentence.getEntities());
+                    }
+                }
+                requests.add(new UpdateOneModel<>(Filters.eq("_id", doc.get("_id")), new Document("$set", update)));
+
+                if (requests.size() >= DEFAULT_BULK_SIZE) {
+                    nDocs += collection.bulkWrite(requests, UNORDERED).getModifiedCount();
+                    requests.clear();
                 }
             }
+            if (!requests.isEmpty()) {
+                nDocs += collection.bulkWrite(requests, UNORDERED).getModifiedCount();
+            }
 
         } catch (Exception ex) {
             System.err.println("MongoDB error: " + ex.getMessage());
         }
 
-        return docs;
+        return nDocs;
     }
 
     /**
+     * Returns the syntactic tree of an argument (it is not loaded by
+     * selectProposalArguments).
+     *
+     * @param argumentId
+     * @return
+     */
+    public String selectArgumentSyntacticTree(String argumentId) {
+        String syntacticTree = null;
+        DbSelectEvent event = DbSelectEvent.begin(DB_TYPE, "selectArgumentSyntacticTree", collName);
+
+        try {
+            MongoCollection<Document> collection = db.getCollection(collName);
+            Document doc = collection.find(Filters.eq("argumentID", argumentId))
+                    .projection(Projections.include("syntacticTree"))
+                    .first();
+            if (doc != null) {
+                syntacticTree = doc.getString("syntacticTree");
+            }
+
+        } catch (Exception ex) {
+            System.err.println("MongoDB error: " + ex.getMessage());
+        }
+        event.commit(syntacticTree != null ? 1 : 0);
+
+        return syntacticTree;
+    }
+
+    /**
+     * Returns the arguments (without their syntactic tree) up to a maximum
+     * tree level, grouped by proposal. The level filter runs on the server.
      *
      * @param maxTreeLevel
      * @return
      */
-    public Map<Integer, List<Argument>> selectProposalArguments(int maxTreeLevel) {
-        Map<Integer, List<Argument>> arguments = new HashMap<>();
+    public IntObjectMap<List<Argument>> selectProposalArguments(int maxTreeLevel) {
+        IntObjectMap<List<Argument>> arguments = new IntObjectMap<>();
         int proposalId;
         Argument argument;
+        int nRows = 0;
+        DbSelectEvent event = DbSelectEvent.begin(DB_TYPE, "selectProposalArguments", collName);
 
         try {
 
-            // Query documents
-            MongoCollection<Document> collection = db.getCollection(collName);
-            FindIterable<Document> cursor = collection.find();
+            // Query documents (decoded by the ArgumentCodec)
+            MongoCollection<Argument> collection = getArgumentCollection();
+            FindIterable<Argument> cursor = collection.find(Filters.lte("pattern.depth", maxTreeLevel))
+                    .projection(NO_SYNTACTIC_TREE)
+                    .batchSize(batchSize);
 
-            for (Iterator<Document> it = cursor.iterator(); it.hasNext();) {
-                Document doc = it.next();
-                argument = new Argument(doc);
+            for (Iterator<Argument> it = cursor.iterator(); it.hasNext();) {
+                argument = it.next();
+                nRows++;
                 proposalId = argument.getProposalId();
-
-                if (argument.getTreeLevel() <= maxTreeLevel) {
-                    if (!arguments.containsKey(proposalId)) {
-                        arguments.put(proposalId, new ArrayList<>());
-                    }
-                    arguments.get(proposalId).add(argument);
-                }
+                arguments.computeIfAbsent(proposalId, k -> new ArrayList<>()).add(argument);
             }
 
         } catch (Exception ex) {
             System.err.println("MongoDB error: " + ex.getMessage());
         }
+        event.commit(nRows);
 
         return arguments;
     }
 
+    /**
+     * Returns the latest between a date and the change time of a document.
+     *
+     * @param doc
+     * @param date
+     * @return
+     */
+    private static Date getLatestChange(RawBsonDocument doc, Date date) {
+        Date changed = null;
+
+        if (doc != null) {
+            if (doc.containsKey(UPDATED_AT) && doc.get(UPDATED_AT).isDateTime()) {
+                changed = new Date(doc.getDateTime(UPDATED_AT).getValue());
+            } else if (doc.containsKey("_id") && doc.get("_id").isObjectId()) {
+                changed = doc.getObjectId("_id").getValue().getDate();
+            }
+        }
+
+        return (changed != null && (date == null || changed.after(date)) ? changed : date);
+    }
+
+    /**
+     * Returns the upsert update of a document: sets its fields and the
+     * updatedAt change time (set by the server).
+     *
+     * @param doc
+     * @return
+     */
+    private static Bson getUpsertUpdate(Document doc) {
+        return new Document("$set", doc).append("$currentDate", new Document(UPDATED_AT, true));
+    }
+
+    /**
+     * Returns the collection of arguments, typed with the ArgumentCodec.
+     *
+     * @return
+     */
+    private MongoCollection<Argument> getArgumentCollection() {
+        return db.getCollection(collName, Argument.class).withCodecRegistry(CODEC_REGISTRY);
+    }
+
+    /**
+     * Creates (once per collection) the indexes used by the argument queries
+     * and upserts.
+     */
+    private void createIndexes() {
+        String key = db.getName() + "." + collName;
+
+        if (!INDEXED_COLLECTIONS.contains(key)) {
+            try {
+                MongoCollection<Document> collection = db.getCollection(collName);
+                collection.createIndex(Indexes.ascending("argumentID"));
+                collection.createIndex(Indexes.ascending("proposalID"));
+                collection.createIndex(Indexes.ascending("pattern.depth"));
+                collection.createIndex(Indexes.ascending(UPDATED_AT));
+                INDEXED_COLLECTIONS.add(key);
+            } catch (Exception ex) {
+                System.err.println("MongoDB error: " + ex.getMessage());
+            }
+        }
+    }
+
     /**
      *
      * @param doc
@@ -174,7 +468,7 @@ public class MongoDbManager {
 
         try {
             MongoCollection<Document> collection = db.getCollection(collName);
-            Bson update = new Document("$set", doc);
+            Bson update = getUpsertUpdate(doc);
             collection.updateOne(filter, update, options);
             result = true;
         } catch (Exception ex) {
@@ -192,17 +486,91 @@ public class MongoDbManager {
      * @return
      */
     public boolean upsertDocuments(List<Document> docs, List<Bson> filters, UpdateOptions options) {
-        boolean result = true;
+        if (docs.size() != filters.size()) {
+            System.err.println("MongoDB error: " + docs.size() + " documents but " + filters.size() + " filters");
+            return false;
+        }
+
+        BulkUpsertResult result = bulkUpsertDocuments(docs, filters, options, DEFAULT_BULK_SIZE);
+        result.getErrors().forEach((item, message) -> System.err.println("MongoDB error (item " + item + "): " + message));
+        return result.isSuccess();
+    }
+
+    /**
+     * Upserts the documents with unordered bulk writes of (at most) batchSize
+     * operations. Failed items are retried up to MAX_RETRIES times, and the
+     * remaining errors are reported per item in the result.
+     *
+     * @param docs
+     * @param filters
+     * @param options
+     * @param batchSize
+     * @return
+     */
+    public BulkUpsertResult bulkUpsertDocuments(List<Document> docs, List<Bson> filters, UpdateOptions options, int batchSize) {
+        if (docs.size() != filters.size()) {
+            throw new IllegalArgumentException("The number of documents (" + docs.size() + ") and filters (" + filters.size() + ") must be equal");
+        }
 
-        if (docs.size() == filters.size()) {
-            for (int i = 0; i < docs.size(); i++) {
-                Document doc = docs.get(i);
-                Bson filter = filters.get(i);
-                result &= upsertDocument(doc, filter, options);
+        BulkUpsertResult result = new BulkUpsertResult(docs.size());
+        MongoCollection<Document> collection = db.getCollection(collName);
+
+        for (int start = 0; start < docs.size(); start += batchSize) {
+            List<Integer> pending = new ArrayList<>();
+            for (int i = start; i < Math.min(start + batchSize, docs.size()); i++) {
+                pending.add(i);
+            }
+
+            for (int attempt = 0; attempt <= MAX_RETRIES && !pending.isEmpty(); attempt++) {
+                pending = bulkWrite(collection, docs, filters, options, pending, result, attempt == MAX_RETRIES);
             }
         }
 
         return result;
     }
 
+    /**
+     * Runs a bulk write of the given items and returns the failed ones.
+     *
+     * @param collection
+     * @param docs
+     * @param filters
+     * @param options
+     * @param items
+     * @param result
+     * @param lastAttempt
+     * @return
+     */
+    private List<Integer> bulkWrite(MongoCollection<Document> collection, List<Document> docs, List<Bson> filters,
+            UpdateOptions options, List<Integer> items, BulkUpsertResult result, boolean lastAttempt) {
+        List<UpdateOneModel<Document>> requests = new ArrayList<>(items.size());
+        List<Integer> failed = new ArrayList<>();
+
+        for (int item : items) {
+            requests.add(new UpdateOneModel<>(filters.get(item), getUpsertUpdate(docs.get(item)), options));
+        }
+
+        try {
+            result.addWrites(collection.bulkWrite(requests, UNORDERED));
+
+        } catch (MongoBulkWriteException ex) {
+            result.addWrites(ex.getWriteResult());
+            for (BulkWriteError error : ex.getWriteErrors()) {
+                int item = items.get(error.getIndex());
+                failed.add(item);
+                if (lastAttempt) {
+                    result.addError(item, error.getMessage());
+                }
+            }
+
+        } catch (Exception ex) {
+            failed.addAll(items);
+            if (lastAttempt) {
+                items.forEach(item -> result.addError(item, ex.getMessage()));
+            }
+        }
+
+        return failed;
+    }
+
 }
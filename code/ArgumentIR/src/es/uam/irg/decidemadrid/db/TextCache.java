@@ -0,0 +1,119 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded (LRU) cache of large texts that are not loaded with the rest of the
+ * data. Missing texts are fetched in a single batch by the loader.
+ */
+public class TextCache {
+
+    // Class members
+    private final Map<Integer, String> cache;
+    private final TextLoader loader;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize maximum number of cached texts
+     * @param loader
+     */
+    public TextCache(int maxSize, TextLoader loader) {
+        this.loader = loader;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     *
+     * @param id
+     * @return
+     */
+    public String getText(int id) {
+        return getTexts(List.of(id)).get(id);
+    }
+
+    /**
+     * Returns the texts of the given ids, fetching the missing ones.
+     *
+     * @param ids
+     * @return
+     */
+    public synchronized Map<Integer, String> getTexts(Collection<Integer> ids) {
+        Map<Integer, String> texts = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+
+        for (Integer id : ids) {
+            String text = cache.get(id);
+            if (text != null) {
+                texts.put(id, text);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            try {
+                Map<Integer, String> loaded = loader.load(missing);
+                cache.putAll(loaded);
+                texts.putAll(loaded);
+            } catch (Exception ex) {
+                System.err.println("MySQL error: " + ex.getMessage());
+            }
+        }
+
+        return texts;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Fetches the texts of a batch of ids.
+     */
+    @FunctionalInterface
+    public interface TextLoader {
+
+        Map<Integer, String> load(Collection<Integer> ids) throws Exception;
+
+    }
+
+}
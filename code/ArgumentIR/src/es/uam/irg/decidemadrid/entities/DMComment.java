@@ -30,6 +30,13 @@ public class DMComment {
     private int numVotesUp;
     private int numVotesDown;
 
+    /**
+     * Constructor of the flyweight comments, which read their values from
+     * another storage (see DMCommentStore).
+     */
+    protected DMComment() {
+    }
+
     public DMComment(int id, int parentId, int proposalId, int userId, String date, String time, String text, int numVotes, int numVotesUp, int numVotesDown) {
         this.id = id;
         this.parentId = parentId;
@@ -0,0 +1,698 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Columnar store of comments. Each field is kept in a parallel primitive array
+ * (the date and time as a single epoch seconds value), and the texts are kept
+ * as UTF-8 bytes in a single arena, indexed by offset and length. The rows are
+ * sorted by comment id (lazily, after appends), so lookups are binary
+ * searches and no per-comment object is retained.
+ *
+ * As a map, it returns flyweight DMComment views of the rows. A view reads
+ * the store on each call, and finds its row again if the store changes.
+ */
+public class DMCommentStore extends AbstractMap<Integer, DMComment> {
+
+    // Class constants
+    private static final int MIN_CAPACITY = 16;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    // Columns
+    private long[] created;
+    private int[] ids;
+    private int[] numVotes;
+    private int[] numVotesDown;
+    private int[] numVotesUp;
+    private int[] parentIds;
+    private int[] proposalIds;
+    private int[] userIds;
+
+    // Text arena (a negative length is a text that was not loaded)
+    private byte[] arena;
+    private int arenaSize;
+    private int[] textLengths;
+    private int[] textOffsets;
+
+    // Class members
+    private int size;
+    private boolean sorted;
+    private int version;
+
+    /**
+     * Constructor.
+     */
+    public DMCommentStore() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize
+     */
+    public DMCommentStore(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        this.created = new long[capacity];
+        this.ids = new int[capacity];
+        this.numVotes = new int[capacity];
+        this.numVotesDown = new int[capacity];
+        this.numVotesUp = new int[capacity];
+        this.parentIds = new int[capacity];
+        this.proposalIds = new int[capacity];
+        this.userIds = new int[capacity];
+        this.textLengths = new int[capacity];
+        this.textOffsets = new int[capacity];
+        this.arena = new byte[capacity * 16];
+        this.arenaSize = 0;
+        this.size = 0;
+        this.sorted = true;
+        this.version = 0;
+    }
+
+    /**
+     * Returns the given map if it is already a store, or a compacted store
+     * with its comments.
+     *
+     * @param comments
+     * @return
+     */
+    public static DMCommentStore of(Map<Integer, DMComment> comments) {
+        if (comments instanceof DMCommentStore) {
+            return (DMCommentStore) comments;
+        }
+        DMCommentStore store = new DMCommentStore(comments.size());
+        comments.values().forEach(store::add);
+        store.compact();
+        return store;
+    }
+
+    /**
+     * Returns the epoch seconds (of the local date and time, taken as UTC) of
+     * a date and a time.
+     *
+     * @param date
+     * @param time
+     * @return
+     */
+    public static long toEpochSeconds(LocalDate date, LocalTime time) {
+        return LocalDateTime.of(date, time).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the epoch seconds of an ISO date (yyyy-MM-dd) and time
+     * (HH:mm:ss). An invalid time is taken as midnight, and an invalid date as
+     * the epoch.
+     *
+     * @param date
+     * @param time
+     * @return
+     */
+    public static long toEpochSeconds(String date, String time) {
+        LocalDate day = LocalDate.EPOCH;
+        LocalTime hour = LocalTime.MIDNIGHT;
+        try {
+            day = LocalDate.parse(date);
+            hour = LocalTime.parse(time);
+        } catch (DateTimeParseException | NullPointerException ex) {
+            // Keeps the values parsed so far
+        }
+        return toEpochSeconds(day, hour);
+    }
+
+    /**
+     * Appends a comment (replacing the previous version of the same id).
+     *
+     * @param comment
+     */
+    public void add(DMComment comment) {
+        add(comment.getId(), comment.getParentId(), comment.getProposalId(), comment.getUserId(), toEpochSeconds(comment.getDate(), comment.getTime()),
+                comment.getText(), comment.getNumVotes(), comment.getNumVotesUp(), comment.getNumVotesDown());
+    }
+
+    /**
+     * Appends a comment (replacing the previous version of the same id).
+     *
+     * @param id
+     * @param parentId
+     * @param proposalId
+     * @param userId
+     * @param created epoch seconds
+     * @param text null if not loaded
+     * @param votes
+     * @param votesUp
+     * @param votesDown
+     */
+    public void add(int id, int parentId, int proposalId, int userId, long created, String text, int votes, int votesUp, int votesDown) {
+        byte[] bytes = (text != null ? text.getBytes(StandardCharsets.UTF_8) : null);
+        int row = appendRow(id, bytes != null ? bytes.length : -1);
+        if (bytes != null) {
+            System.arraycopy(bytes, 0, arena, textOffsets[row], bytes.length);
+        }
+        this.parentIds[row] = parentId;
+        this.proposalIds[row] = proposalId;
+        this.userIds[row] = userId;
+        this.created[row] = created;
+        this.numVotes[row] = votes;
+        this.numVotesUp[row] = votesUp;
+        this.numVotesDown[row] = votesDown;
+    }
+
+    /**
+     * Appends all the comments of another store (the texts are copied without
+     * decoding them).
+     *
+     * @param other
+     */
+    public void addAll(DMCommentStore other) {
+        for (int i = 0; i < other.size; i++) {
+            int length = other.textLengths[i];
+            int row = appendRow(other.ids[i], length);
+            if (length > 0) {
+                System.arraycopy(other.arena, other.textOffsets[i], arena, textOffsets[row], length);
+            }
+            this.parentIds[row] = other.parentIds[i];
+            this.proposalIds[row] = other.proposalIds[i];
+            this.userIds[row] = other.userIds[i];
+            this.created[row] = other.created[i];
+            this.numVotes[row] = other.numVotes[i];
+            this.numVotesUp[row] = other.numVotesUp[i];
+            this.numVotesDown[row] = other.numVotesDown[i];
+        }
+    }
+
+    /**
+     * Sorts the rows and releases the unused capacity (to be called when a
+     * bulk load is done).
+     */
+    public void compact() {
+        ensureSorted();
+        int capacity = Math.max(MIN_CAPACITY, size);
+        if (ids.length > capacity) {
+            this.created = Arrays.copyOf(created, capacity);
+            this.ids = Arrays.copyOf(ids, capacity);
+            this.numVotes = Arrays.copyOf(numVotes, capacity);
+            this.numVotesDown = Arrays.copyOf(numVotesDown, capacity);
+            this.numVotesUp = Arrays.copyOf(numVotesUp, capacity);
+            this.parentIds = Arrays.copyOf(parentIds, capacity);
+            this.proposalIds = Arrays.copyOf(proposalIds, capacity);
+            this.userIds = Arrays.copyOf(userIds, capacity);
+            this.textLengths = Arrays.copyOf(textLengths, capacity);
+            this.textOffsets = Arrays.copyOf(textOffsets, capacity);
+        }
+        if (arena.length > arenaSize) {
+            this.arena = Arrays.copyOf(arena, arenaSize);
+        }
+    }
+
+    /**
+     *
+     * @param id
+     * @return
+     */
+    public boolean containsKey(int id) {
+        return indexOf(id) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) && indexOf((Integer) key) >= 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, DMComment>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Integer, DMComment>> iterator() {
+                ensureSorted();
+                return new Iterator<>() {
+                    private int row = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < size;
+                    }
+
+                    @Override
+                    public Map.Entry<Integer, DMComment> next() {
+                        if (row >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int ix = row++;
+                        return new SimpleImmutableEntry<>(ids[ix], new CommentView(ix));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return DMCommentStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns a flyweight view of a comment, or null.
+     *
+     * @param id
+     * @return
+     */
+    public DMComment get(int id) {
+        int row = indexOf(id);
+        return (row >= 0 ? new CommentView(row) : null);
+    }
+
+    @Override
+    public DMComment get(Object key) {
+        return (key instanceof Integer ? get(((Integer) key).intValue()) : null);
+    }
+
+    /**
+     * Returns the bytes used by the columns and the text arena.
+     *
+     * @return
+     */
+    public long getAllocatedBytes() {
+        return (long) ids.length * (8 + 4 * 9) + arena.length;
+    }
+
+    /**
+     *
+     * @param row
+     * @return epoch seconds
+     */
+    public long getCreated(int row) {
+        return created[row];
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public String getDate(int row) {
+        return LocalDateTime.ofEpochSecond(created[row], 0, ZoneOffset.UTC).toLocalDate().toString();
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getNumVotes(int row) {
+        return numVotes[row];
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getNumVotesDown(int row) {
+        return numVotesDown[row];
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getNumVotesUp(int row) {
+        return numVotesUp[row];
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getParentId(int row) {
+        return parentIds[row];
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getProposalId(int row) {
+        return proposalIds[row];
+    }
+
+    /**
+     * Returns the number of rows (the rows are sorted by id first).
+     *
+     * @return
+     */
+    public int getRowCount() {
+        ensureSorted();
+        return size;
+    }
+
+    /**
+     *
+     * @param row
+     * @return null if the text was not loaded
+     */
+    public String getText(int row) {
+        int length = textLengths[row];
+        return (length >= 0 ? new String(arena, textOffsets[row], length, StandardCharsets.UTF_8) : null);
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public String getTime(int row) {
+        return LocalDateTime.ofEpochSecond(created[row], 0, ZoneOffset.UTC).toLocalTime().format(TIME_FORMAT);
+    }
+
+    /**
+     *
+     * @param row
+     * @return
+     */
+    public int getUserId(int row) {
+        return userIds[row];
+    }
+
+    /**
+     * Returns true if the text of a comment was loaded.
+     *
+     * @param id
+     * @return
+     */
+    public boolean hasText(int id) {
+        int row = indexOf(id);
+        return row >= 0 && textLengths[row] >= 0;
+    }
+
+    /**
+     * Returns the row of a comment, or -1.
+     *
+     * @param id
+     * @return
+     */
+    public int indexOf(int id) {
+        ensureSorted();
+        return Math.max(-1, Arrays.binarySearch(ids, 0, size, id));
+    }
+
+    @Override
+    public DMComment put(Integer key, DMComment value) {
+        int row = indexOf(key);
+        DMComment previous = (row >= 0 ? new DMComment(ids[row], parentIds[row], proposalIds[row], userIds[row], getDate(row), getTime(row), getText(row),
+                numVotes[row], numVotesUp[row], numVotesDown[row]) : null);
+        add(value);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        ensureSorted();
+        return size;
+    }
+
+    /**
+     * Appends a row with room for a text of the given length in the arena.
+     *
+     * @param id
+     * @param textLength
+     * @return
+     */
+    private int appendRow(int id, int textLength) {
+        if (size == ids.length) {
+            grow(size + (size >> 1));
+        }
+        if (textLength > 0 && arenaSize + textLength > arena.length) {
+            long capacity = Math.max((long) arena.length + (arena.length >> 1), (long) arenaSize + textLength);
+            this.arena = Arrays.copyOf(arena, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+
+        int row = size++;
+        this.sorted = sorted && (row == 0 || id > ids[row - 1]);
+        this.ids[row] = id;
+        this.textOffsets[row] = arenaSize;
+        this.textLengths[row] = textLength;
+        this.arenaSize += Math.max(0, textLength);
+        this.version++;
+        return row;
+    }
+
+    /**
+     * Sorts the rows by id, keeping only the last appended row of each id.
+     */
+    private void ensureSorted() {
+        if (sorted) {
+            return;
+        }
+
+        // Sort keys: the id and then the row (the appending order)
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = ((long) ids[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] rows = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (i + 1 < size && (int) (order[i + 1] >> 32) == (int) (order[i] >> 32)) {
+                continue;
+            }
+            rows[n++] = (int) order[i];
+        }
+
+        this.created = permute(created, rows, n);
+        this.ids = permute(ids, rows, n);
+        this.numVotes = permute(numVotes, rows, n);
+        this.numVotesDown = permute(numVotesDown, rows, n);
+        this.numVotesUp = permute(numVotesUp, rows, n);
+        this.parentIds = permute(parentIds, rows, n);
+        this.proposalIds = permute(proposalIds, rows, n);
+        this.userIds = permute(userIds, rows, n);
+        this.textLengths = permute(textLengths, rows, n);
+        this.textOffsets = permute(textOffsets, rows, n);
+        if (n < size) {
+            rebuildArena(n);
+        }
+        this.size = n;
+        this.sorted = true;
+        this.version++;
+    }
+
+    /**
+     * Copies the texts of the first n rows into a new arena, releasing the
+     * texts of the replaced rows.
+     *
+     * @param n
+     */
+    private void rebuildArena(int n) {
+        int used = 0;
+        for (int i = 0; i < n; i++) {
+            used += Math.max(0, textLengths[i]);
+        }
+
+        byte[] newArena = new byte[Math.max(used, MIN_CAPACITY)];
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            int length = textLengths[i];
+            if (length > 0) {
+                System.arraycopy(arena, textOffsets[i], newArena, offset, length);
+            }
+            textOffsets[i] = offset;
+            offset += Math.max(0, length);
+        }
+        this.arena = newArena;
+        this.arenaSize = offset;
+    }
+
+    /**
+     *
+     * @param capacity
+     */
+    private void grow(int capacity) {
+        this.created = Arrays.copyOf(created, capacity);
+        this.ids = Arrays.copyOf(ids, capacity);
+        this.numVotes = Arrays.copyOf(numVotes, capacity);
+        this.numVotesDown = Arrays.copyOf(numVotesDown, capacity);
+        this.numVotesUp = Arrays.copyOf(numVotesUp, capacity);
+        this.parentIds = Arrays.copyOf(parentIds, capacity);
+        this.proposalIds = Arrays.copyOf(proposalIds, capacity);
+        this.userIds = Arrays.copyOf(userIds, capacity);
+        this.textLengths = Arrays.copyOf(textLengths, capacity);
+        this.textOffsets = Arrays.copyOf(textOffsets, capacity);
+    }
+
+    /**
+     *
+     * @param column
+     * @param rows
+     * @param n
+     * @return
+     */
+    private static int[] permute(int[] column, int[] rows, int n) {
+        int[] result = new int[column.length];
+        for (int i = 0; i < n; i++) {
+            result[i] = column[rows[i]];
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @param column
+     * @param rows
+     * @param n
+     * @return
+     */
+    private static long[] permute(long[] column, int[] rows, int n) {
+        long[] result = new long[column.length];
+        for (int i = 0; i < n; i++) {
+            result[i] = column[rows[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Flyweight comment: only keeps its row (found again by id when the store
+     * changes).
+     */
+    private class CommentView extends DMComment {
+
+        private final int commentId;
+        private int row;
+        private int rowVersion;
+
+        CommentView(int row) {
+            this.commentId = ids[row];
+            this.row = row;
+            this.rowVersion = version;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof DMComment) && ((DMComment) obj).getId() == commentId;
+        }
+
+        @Override
+        public String getDate() {
+            return DMCommentStore.this.getDate(row());
+        }
+
+        @Override
+        public int getId() {
+            return commentId;
+        }
+
+        @Override
+        public int getNumVotes() {
+            return numVotes[row()];
+        }
+
+        @Override
+        public int getNumVotesDown() {
+            return numVotesDown[row()];
+        }
+
+        @Override
+        public int getNumVotesUp() {
+            return numVotesUp[row()];
+        }
+
+        @Override
+        public int getParentId() {
+            return parentIds[row()];
+        }
+
+        @Override
+        public int getProposalId() {
+            return proposalIds[row()];
+        }
+
+        @Override
+        public String getText() {
+            return DMCommentStore.this.getText(row());
+        }
+
+        @Override
+        public String getTime() {
+            return DMCommentStore.this.getTime(row());
+        }
+
+        @Override
+        public int getUserId() {
+            return userIds[row()];
+        }
+
+        @Override
+        public int hashCode() {
+            return 79 * 5 + commentId;
+        }
+
+        @Override
+        public String toString() {
+            return "DMComment{" + "id=" + commentId + ", parentId=" + getParentId() + ", proposalId=" + getProposalId() + ", userId=" + getUserId()
+                    + ", date=" + getDate() + ", time=" + getTime() + ", text=" + getText() + ", numVotes=" + getNumVotes()
+                    + ", numVotesUp=" + getNumVotesUp() + ", numVotesDown=" + getNumVotesDown() + '}';
+        }
+
+        /**
+         * Returns the current row of the comment.
+         *
+         * @return
+         */
+        private int row() {
+            if (rowVersion != version) {
+                row = indexOf(commentId);
+                rowVersion = version;
+                if (row < 0) {
+                    throw new IllegalStateException("Comment " + commentId + " is no longer in the store");
+                }
+            }
+            return row;
+        }
+
+    }
+
+}
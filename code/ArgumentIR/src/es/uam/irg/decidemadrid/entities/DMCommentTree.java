@@ -39,6 +39,35 @@ public class DMCommentTree {
         this.children = new ArrayList<>();
     }
 
+    /**
+     * Builds the comment trees of a proposal from its (flat) list of comments.
+     *
+     * @param comments
+     * @return
+     */
+    public static List<DMCommentTree> createTrees(List<DMComment> comments) {
+        List<DMCommentTree> trees = new ArrayList<>();
+
+        // Root comments
+        for (DMComment comment : comments) {
+            int commentId = comment.getId();
+            int parentId = comment.getParentId();
+            if (parentId == -1) {
+                DMCommentTree root = new DMCommentTree(commentId, 0);
+                if (!trees.contains(root)) {
+                    trees.add(root);
+                }
+            }
+        }
+
+        // Root comments' children
+        for (DMCommentTree root : trees) {
+            root.expand(comments);
+        }
+
+        return trees;
+    }
+
     public int getId() {
         return id;
     }
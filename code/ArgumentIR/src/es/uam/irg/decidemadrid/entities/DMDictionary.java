@@ -0,0 +1,139 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.decidemadrid.entities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of terms (categories, districts, topics) encoded as dense int
+ * ids, so each distinct term is stored only once. The shared instance is used
+ * by the loaders, the index (term id fields and filters) and the reports, so
+ * an id means the same term everywhere.
+ */
+public class DMDictionary {
+
+    // Class constants
+    private static final int INITIAL_CAPACITY = 256;
+    private static final DMDictionary INSTANCE = new DMDictionary();
+
+    // Class members
+    private final Map<String, Integer> ids;
+    private volatile String[] terms;
+    private volatile int size;
+
+    /**
+     * Constructor.
+     */
+    public DMDictionary() {
+        this.ids = new HashMap<>();
+        this.terms = new String[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the shared dictionary.
+     *
+     * @return
+     */
+    public static DMDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the normalized form of a term (trimmed and lower-cased), as it
+     * is stored in the dictionary.
+     *
+     * @param term
+     * @return
+     */
+    public static String normalize(String term) {
+        return term.trim().toLowerCase();
+    }
+
+    /**
+     * Returns the id of the term, adding it to the dictionary if needed.
+     *
+     * @param term
+     * @return
+     */
+    public synchronized int encode(String term) {
+        Integer id = ids.get(term);
+        if (id == null) {
+            id = size;
+            if (id == terms.length) {
+                terms = Arrays.copyOf(terms, terms.length * 2);
+            }
+            terms[id] = term;
+            ids.put(term, id);
+            size = id + 1;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the term, or -1 if it is not in the dictionary.
+     *
+     * @param term
+     * @return
+     */
+    public synchronized int getId(String term) {
+        return ids.getOrDefault(term, -1);
+    }
+
+    /**
+     *
+     * @param id
+     * @return
+     */
+    public String getTerm(int id) {
+        return terms[id];
+    }
+
+    /**
+     * Joins the terms of the given ids with a separator.
+     *
+     * @param termIds
+     * @param separator
+     * @return
+     */
+    public String join(int[] termIds, String separator) {
+        if (termIds.length == 0) {
+            return "";
+        }
+        String[] values = terms;
+        StringBuilder sb = new StringBuilder(termIds.length * 16);
+        for (int i = 0; i < termIds.length; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(values[termIds[i]]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+}
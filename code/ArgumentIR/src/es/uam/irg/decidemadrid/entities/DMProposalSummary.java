@@ -17,37 +17,118 @@
  */
 package es.uam.irg.decidemadrid.entities;
 
+import java.util.Arrays;
+
 /**
- *
+ * Categories, districts and topics of a proposal, stored as dictionary ids.
  */
 public class DMProposalSummary {
 
-    private String categories;
-    private String districts;
-    private int id;
-    private String topics;
+    private static final int[] NO_TERMS = new int[0];
 
-    public DMProposalSummary(int id, String categories, String districts, String topics) {
+    private final int[] categories;
+    private final DMDictionary dictionary;
+    private final int[] districts;
+    private final int id;
+    private final int[] topics;
+
+    public DMProposalSummary(int id, int[] categories, int[] districts, int[] topics, DMDictionary dictionary) {
         this.id = id;
         this.categories = categories;
         this.districts = districts;
         this.topics = topics;
+        this.dictionary = dictionary;
+    }
+
+    public DMProposalSummary(int id, String categories, String districts, String topics, DMDictionary dictionary) {
+        this(id, encode(categories, dictionary), encode(districts, dictionary), encode(topics, dictionary), dictionary);
     }
 
     public String getCategories() {
+        return getCategories(",");
+    }
+
+    public String getCategories(String separator) {
+        return this.dictionary.join(this.categories, separator);
+    }
+
+    public int[] getCategoryIds() {
         return this.categories;
     }
 
-    public String getDistricts() {
+    public DMDictionary getDictionary() {
+        return this.dictionary;
+    }
+
+    public int[] getDistrictIds() {
         return this.districts;
     }
 
+    public String getDistricts() {
+        return getDistricts(",");
+    }
+
+    public String getDistricts(String separator) {
+        return this.dictionary.join(this.districts, separator);
+    }
+
     public int getId() {
         return id;
     }
 
-    public String getTopics() {
+    public int[] getTopicIds() {
         return this.topics;
     }
 
+    public String getTopics() {
+        return getTopics(",");
+    }
+
+    public String getTopics(String separator) {
+        return this.dictionary.join(this.topics, separator);
+    }
+
+    /**
+     * Encodes a comma-separated list of terms, normalized (see
+     * DMDictionary.normalize) and without empty or repeated terms.
+     *
+     * @param terms
+     * @param dictionary
+     * @return
+     */
+    private static int[] encode(String terms, DMDictionary dictionary) {
+        if (terms.isEmpty()) {
+            return NO_TERMS;
+        }
+        String[] values = terms.split(",");
+        int[] ids = new int[values.length];
+        int n = 0;
+        for (String value : values) {
+            String term = DMDictionary.normalize(value);
+            if (!term.isEmpty()) {
+                int id = dictionary.encode(term);
+                if (!contains(ids, n, id)) {
+                    ids[n++] = id;
+                }
+            }
+        }
+        return (n == ids.length ? ids : Arrays.copyOf(ids, n));
+    }
+
+    /**
+     *
+     * @param ids
+     * @param n
+     * @param id
+     * @return
+     */
+    private static boolean contains(int[] ids, int n, int id) {
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.io;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import es.uam.irg.decidemadrid.db.BulkUpsertResult;
+import es.uam.irg.decidemadrid.db.MongoDbManager;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.utils.EventLogger;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Bulk importer of the arguments exported by the miner (a JSON object that
+ * maps argument IDs to arguments) into MongoDB. The file is stream-parsed
+ * entry by entry, so memory usage only depends on the batch size.
+ *
+ * Usage: ArgumentImporter [filepath] [batch size]
+ *        ArgumentImporter --migrate-lists (converts the legacy text lists of
+ *        the stored arguments into native arrays)
+ */
+public class ArgumentImporter {
+
+    // Class constants
+    public static final String DEFAULT_FILEPATH = "../../data/source/arguments80.json";
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d+-\\d+-\\d+-\\d+");
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int REPORT_INTERVAL = 10;
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    // Class members
+    private final int batchSize;
+    private final List<Document> docs;
+    private final List<Bson> filters;
+    private final MongoDbManager manager;
+    private int nBatches;
+    private long nErrors;
+    private long nImported;
+    private long nInvalid;
+    private long start;
+
+    /**
+     * Constructor.
+     *
+     * @param manager
+     * @param batchSize
+     */
+    public ArgumentImporter(MongoDbManager manager, int batchSize) {
+        this.manager = manager;
+        this.batchSize = batchSize;
+        this.docs = new ArrayList<>(batchSize);
+        this.filters = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--migrate-lists")) {
+            MongoDbManager manager = new MongoDbManager(IOManager.getDatabaseConfiguration(IOManager.MONGO_DB));
+            EventLogger.info(">> Migrated arguments", "count", manager.migrateSentenceLists());
+            EventLogger.getInstance().flush();
+            return;
+        }
+
+        String filepath = (args.length > 0 ? args[0] : DEFAULT_FILEPATH);
+        int batchSize = (args.length > 1 ? Integer.parseInt(args[1]) : MongoDbManager.DEFAULT_BULK_SIZE);
+
+        MongoDbManager manager = new MongoDbManager(IOManager.getDatabaseConfiguration(IOManager.MONGO_DB));
+        ArgumentImporter importer = new ArgumentImporter(manager, batchSize);
+
+        try ( Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(filepath), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            EventLogger.info(">> Importing arguments", "file", filepath, "batch", batchSize);
+            importer.importArguments(reader);
+
+        } catch (IOException | JSONException ex) {
+            EventLogger.error("Error importing arguments", ex);
+        }
+        EventLogger.getInstance().flush();
+    }
+
+    /**
+     * Reads the arguments map entry by entry and upserts them in batches.
+     *
+     * @param reader
+     */
+    public void importArguments(Reader reader) {
+        this.start = System.nanoTime();
+        readArguments(reader, this::addArgument);
+        flush();
+        report(">> Import finished");
+    }
+
+    /**
+     * Stream-parses a map of argument IDs to arguments, passing each entry
+     * (not validated) to the handler.
+     *
+     * @param reader
+     * @param handler
+     */
+    public static void readArguments(Reader reader, BiConsumer<String, Object> handler) {
+        JSONTokener tokener = new JSONTokener(reader);
+
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSON object must begin with '{'");
+        }
+
+        char c = tokener.nextClean();
+        while (c != '}') {
+            tokener.back();
+            String argumentId = tokener.nextValue().toString();
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+            handler.accept(argumentId, tokener.nextValue());
+
+            c = tokener.nextClean();
+            if (c == ',') {
+                c = tokener.nextClean();
+            } else if (c != '}') {
+                throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Creates the argument of an entry of the map, or returns null if the
+     * entry is not valid.
+     *
+     * @param argumentId
+     * @param value
+     * @return
+     */
+    public static Argument parseArgument(String argumentId, Object value) {
+        Argument arg = null;
+
+        if (ID_PATTERN.matcher(argumentId).matches() && value instanceof JSONObject) {
+            try {
+                JSONObject json = (JSONObject) value;
+                arg = new Argument(argumentId, json);
+                if (arg.getProposalId() != json.getInt("proposalID")) {
+                    arg = null;
+                }
+            } catch (JSONException ex) {
+                arg = null;
+            }
+        }
+
+        return arg;
+    }
+
+    /**
+     * Validates an entry and adds it to the current batch.
+     *
+     * @param argumentId
+     * @param value
+     */
+    private void addArgument(String argumentId, Object value) {
+        Argument arg = parseArgument(argumentId, value);
+
+        if (arg == null) {
+            nInvalid++;
+            EventLogger.warn("Invalid argument skipped", "id", argumentId);
+            return;
+        }
+
+        docs.add(arg.getDocument());
+        filters.add(Filters.eq("argumentID", argumentId));
+        if (docs.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Upserts the current batch.
+     */
+    private void flush() {
+        if (!docs.isEmpty()) {
+            BulkUpsertResult result = manager.bulkUpsertDocuments(docs, filters, UPSERT, batchSize);
+            result.getErrors().forEach((item, message) -> {
+                EventLogger.warn("Argument not imported", "id", docs.get(item).getString("argumentID"), "error", message);
+            });
+            nErrors += result.getErrors().size();
+            nImported += docs.size() - result.getErrors().size();
+            docs.clear();
+            filters.clear();
+
+            if (++nBatches % REPORT_INTERVAL == 0) {
+                report(" - Importing");
+            }
+        }
+    }
+
+    /**
+     *
+     * @param msg
+     */
+    private void report(String msg) {
+        double elapsed = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        EventLogger.info(msg, "imported", nImported, "invalid", nInvalid, "errors", nErrors,
+                "args/s", String.format("%.0f", nImported / elapsed));
+    }
+
+}
@@ -0,0 +1,508 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.io;
+
+import es.uam.irg.decidemadrid.db.ArgumentCodec;
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMCommentStore;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.utils.IntDoubleMap;
+import es.uam.irg.utils.IntObjectMap;
+import es.uam.irg.utils.EventLogger;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Versioned binary snapshot of the loaded corpus (proposals, summaries,
+ * comments, arguments and controversy scores), used to start without
+ * querying the databases.
+ *
+ * Layout: a fixed header (magic, schema version, creation time, payload
+ * length and CRC32 of the payload) followed by the payload: a table of
+ * distinct, length-prefixed UTF-8 strings, and the records, which refer to
+ * the strings by index and store numbers as primitives. The arguments are
+ * stored as BSON documents written by ArgumentCodec. The file is read through
+ * a memory mapping.
+ */
+public class CorpusSnapshot {
+
+    // Class constants
+    public static final int MAGIC = 0x41495253;
+    public static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    private static final int NULL_REF = -1;
+
+    // Class members
+    private final Date argumentWatermark;
+    private final Map<Integer, DMComment> comments;
+    private final Map<Integer, Double> controversyScores;
+    private final long created;
+    private final Map<Integer, List<Argument>> proposalArguments;
+    private final Map<Integer, DMProposal> proposals;
+    private final Map<Integer, DMProposalSummary> summaries;
+
+    /**
+     * Constructor.
+     *
+     * @param proposals
+     * @param summaries
+     * @param comments
+     * @param proposalArguments
+     * @param controversyScores
+     * @param argumentWatermark high-water mark of the argument sync (or null)
+     */
+    public CorpusSnapshot(Map<Integer, DMProposal> proposals, Map<Integer, DMProposalSummary> summaries, Map<Integer, DMComment> comments,
+            Map<Integer, List<Argument>> proposalArguments, Map<Integer, Double> controversyScores, Date argumentWatermark) {
+        this(proposals, summaries, comments, proposalArguments, controversyScores, argumentWatermark, System.currentTimeMillis());
+    }
+
+    private CorpusSnapshot(Map<Integer, DMProposal> proposals, Map<Integer, DMProposalSummary> summaries, Map<Integer, DMComment> comments,
+            Map<Integer, List<Argument>> proposalArguments, Map<Integer, Double> controversyScores, Date argumentWatermark, long created) {
+        this.proposals = proposals;
+        this.summaries = summaries;
+        this.comments = comments;
+        this.proposalArguments = proposalArguments;
+        this.controversyScores = controversyScores;
+        this.argumentWatermark = argumentWatermark;
+        this.created = created;
+    }
+
+    /**
+     * Reads a snapshot, or returns null if the file does not exist, is older
+     * than the given time-to-live, or is not valid (other schema version,
+     * wrong checksum). The categories, districts and topics are encoded with
+     * the given dictionary.
+     *
+     * @param file
+     * @param ttlSeconds
+     * @param dictionary
+     * @return
+     */
+    public static CorpusSnapshot read(File file, int ttlSeconds, DMDictionary dictionary) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+
+        try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // Header
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            long created = buffer.getLong();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+
+            if (magic != MAGIC || version != VERSION) {
+                EventLogger.warn(" - Snapshot rejected (schema version)", "version", version);
+                return null;
+            }
+            if (System.currentTimeMillis() - created > ttlSeconds * 1000L) {
+                EventLogger.info(" - Snapshot expired", "created", new Date(created));
+                return null;
+            }
+            if (length != buffer.remaining()) {
+                EventLogger.warn(" - Snapshot rejected (truncated)", "length", buffer.remaining());
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                EventLogger.warn(" - Snapshot rejected (checksum)");
+                return null;
+            }
+
+            return readPayload(buffer, dictionary, created);
+
+        } catch (IOException | RuntimeException ex) {
+            EventLogger.error("Error reading the snapshot " + file, ex);
+        }
+
+        return null;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Date getArgumentWatermark() {
+        return argumentWatermark;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<Integer, DMComment> getComments() {
+        return comments;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<Integer, Double> getControversyScores() {
+        return controversyScores;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Date getCreated() {
+        return new Date(created);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<Integer, List<Argument>> getProposalArguments() {
+        return proposalArguments;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<Integer, DMProposal> getProposals() {
+        return proposals;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<Integer, DMProposalSummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * Writes the snapshot (to a temporary file that then replaces the given
+     * one, so readers never see a partial snapshot).
+     *
+     * @param file
+     * @param dictionary dictionary of the summaries
+     * @throws IOException
+     */
+    public void write(File file, DMDictionary dictionary) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(1 << 20);
+        DataOutputStream out = new DataOutputStream(records);
+
+        // Dictionary
+        out.writeInt(dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            out.writeInt(strings.getRef(dictionary.getTerm(i)));
+        }
+
+        // Proposals (the URL is stored without the home page prefix)
+        out.writeInt(proposals.size());
+        for (DMProposal proposal : proposals.values()) {
+            out.writeInt(proposal.getId());
+            out.writeInt(strings.getRef(proposal.getCode()));
+            out.writeInt(strings.getRef(proposal.getTitle()));
+            out.writeInt(proposal.getUserId());
+            out.writeInt(strings.getRef(proposal.getDate()));
+            out.writeInt(strings.getRef(proposal.getSummary()));
+            out.writeInt(strings.getRef(proposal.getText()));
+            out.writeInt(proposal.getNumComments());
+            out.writeInt(proposal.getNumSupports());
+            out.writeInt(strings.getRef(proposal.getUrl().substring(DMProposal.HOME_PAGE.length())));
+        }
+
+        // Summaries
+        out.writeInt(summaries.size());
+        for (DMProposalSummary summary : summaries.values()) {
+            out.writeInt(summary.getId());
+            writeInts(out, summary.getCategoryIds());
+            writeInts(out, summary.getDistrictIds());
+            writeInts(out, summary.getTopicIds());
+        }
+
+        // Comments (date and time as epoch seconds)
+        DMCommentStore store = DMCommentStore.of(comments);
+        out.writeInt(store.getRowCount());
+        for (int row = 0; row < store.getRowCount(); row++) {
+            out.writeInt(store.getId(row));
+            out.writeInt(store.getParentId(row));
+            out.writeInt(store.getProposalId(row));
+            out.writeInt(store.getUserId(row));
+            out.writeLong(store.getCreated(row));
+            out.writeInt(strings.getRef(store.getText(row)));
+            out.writeInt(store.getNumVotes(row));
+            out.writeInt(store.getNumVotesUp(row));
+            out.writeInt(store.getNumVotesDown(row));
+        }
+
+        // Arguments, grouped by proposal
+        ArgumentCodec codec = new ArgumentCodec();
+        BasicOutputBuffer bson = new BasicOutputBuffer();
+        out.writeInt(proposalArguments.size());
+        for (Map.Entry<Integer, List<Argument>> entry : proposalArguments.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Argument argument : entry.getValue()) {
+                bson.truncateToPosition(0);
+                codec.encode(new BsonBinaryWriter(bson), argument, EncoderContext.builder().build());
+                out.writeInt(bson.getPosition());
+                out.write(bson.getInternalBuffer(), 0, bson.getPosition());
+            }
+        }
+
+        // Controversy scores
+        out.writeInt(controversyScores.size());
+        for (Map.Entry<Integer, Double> entry : controversyScores.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+
+        out.writeLong(argumentWatermark != null ? argumentWatermark.getTime() : -1);
+        out.flush();
+
+        // Payload: string table + records
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(records.size() + strings.getByteSize());
+        DataOutputStream payloadOut = new DataOutputStream(payload);
+        strings.write(payloadOut);
+        records.writeTo(payloadOut);
+        payloadOut.flush();
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try ( DataOutputStream fileOut = new DataOutputStream(new FileOutputStream(tmpFile))) {
+            fileOut.writeInt(MAGIC);
+            fileOut.writeInt(VERSION);
+            fileOut.writeLong(created);
+            fileOut.writeInt(bytes.length);
+            fileOut.writeInt((int) crc.getValue());
+            fileOut.write(bytes);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     *
+     * @param buffer
+     * @return
+     */
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+
+    /**
+     * Parses the payload (string table and records).
+     *
+     * @param buffer positioned at the start of the payload
+     * @param dictionary
+     * @param created
+     * @return
+     */
+    private static CorpusSnapshot readPayload(ByteBuffer buffer, DMDictionary dictionary, long created) {
+        // Strings
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            strings[i] = StandardCharsets.UTF_8.decode(buffer.slice().limit(length)).toString();
+            buffer.position(buffer.position() + length);
+        }
+
+        // Dictionary (the stored ids are remapped to the ids of the given dictionary)
+        int[] termIds = new int[buffer.getInt()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = dictionary.encode(strings[buffer.getInt()]);
+        }
+
+        // Proposals
+        int n = buffer.getInt();
+        IntObjectMap<DMProposal> proposals = new IntObjectMap<>(n);
+        for (int i = 0; i < n; i++) {
+            int id = buffer.getInt();
+            String code = getString(strings, buffer.getInt());
+            String title = getString(strings, buffer.getInt());
+            int userId = buffer.getInt();
+            String date = getString(strings, buffer.getInt());
+            String summary = getString(strings, buffer.getInt());
+            String text = getString(strings, buffer.getInt());
+            int numComments = buffer.getInt();
+            int numSupports = buffer.getInt();
+            String url = getString(strings, buffer.getInt());
+            proposals.put(id, new DMProposal(id, code, title, userId, date, summary, text, numComments, numSupports, url));
+        }
+
+        // Summaries
+        n = buffer.getInt();
+        IntObjectMap<DMProposalSummary> summaries = new IntObjectMap<>(n);
+        for (int i = 0; i < n; i++) {
+            int id = buffer.getInt();
+            int[] categories = remap(readInts(buffer), termIds);
+            int[] districts = remap(readInts(buffer), termIds);
+            int[] topics = remap(readInts(buffer), termIds);
+            summaries.put(id, new DMProposalSummary(id, categories, districts, topics, dictionary));
+        }
+
+        // Comments
+        n = buffer.getInt();
+        DMCommentStore comments = new DMCommentStore(n);
+        for (int i = 0; i < n; i++) {
+            int id = buffer.getInt();
+            int parentId = buffer.getInt();
+            int proposalId = buffer.getInt();
+            int userId = buffer.getInt();
+            long commentCreated = buffer.getLong();
+            String text = getString(strings, buffer.getInt());
+            int votes = buffer.getInt();
+            int votesUp = buffer.getInt();
+            int votesDown = buffer.getInt();
+            comments.add(id, parentId, proposalId, userId, commentCreated, text, votes, votesUp, votesDown);
+        }
+        comments.compact();
+
+        // Arguments
+        ArgumentCodec codec = new ArgumentCodec();
+        n = buffer.getInt();
+        IntObjectMap<List<Argument>> proposalArguments = new IntObjectMap<>(n);
+        for (int i = 0; i < n; i++) {
+            int proposalId = buffer.getInt();
+            int nArguments = buffer.getInt();
+            List<Argument> arguments = new ArrayList<>(nArguments);
+            for (int j = 0; j < nArguments; j++) {
+                int length = buffer.getInt();
+                try ( BsonBinaryReader reader = new BsonBinaryReader(buffer.slice().limit(length))) {
+                    arguments.add(codec.decode(reader, DecoderContext.builder().build()));
+                }
+                buffer.position(buffer.position() + length);
+            }
+            proposalArguments.put(proposalId, arguments);
+        }
+
+        // Controversy scores
+        n = buffer.getInt();
+        IntDoubleMap controversyScores = new IntDoubleMap(n);
+        for (int i = 0; i < n; i++) {
+            int id = buffer.getInt();
+            controversyScores.put(id, buffer.getDouble());
+        }
+
+        long watermark = buffer.getLong();
+
+        return new CorpusSnapshot(proposals, summaries, comments, proposalArguments, controversyScores,
+                (watermark >= 0 ? new Date(watermark) : null), created);
+    }
+
+    /**
+     *
+     * @param strings
+     * @param ref
+     * @return
+     */
+    private static String getString(String[] strings, int ref) {
+        return (ref != NULL_REF ? strings[ref] : null);
+    }
+
+    /**
+     *
+     * @param ids
+     * @param termIds
+     * @return
+     */
+    private static int[] remap(int[] ids, int[] termIds) {
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = termIds[ids[i]];
+        }
+        return ids;
+    }
+
+    /**
+     *
+     * @param out
+     * @param values
+     * @throws IOException
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Table of distinct strings, referred to by index.
+     */
+    private static class StringTable {
+
+        private int byteSize;
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+
+        int getByteSize() {
+            return byteSize;
+        }
+
+        int getRef(String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            return refs.computeIfAbsent(value, k -> {
+                byte[] bytes = k.getBytes(StandardCharsets.UTF_8);
+                values.add(bytes);
+                byteSize += 4 + bytes.length;
+                return values.size() - 1;
+            });
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (byte[] bytes : values) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+    }
+
+}
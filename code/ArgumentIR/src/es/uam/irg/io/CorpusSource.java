@@ -0,0 +1,104 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.io;
+
+import es.uam.irg.decidemadrid.controversy.ControversyScore;
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.nlp.am.arguments.Argument;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source of the corpus loaded by the tool (proposals, comments, arguments and
+ * controversy scores). Implementations must be thread-safe, since the data
+ * model loads the parts of the corpus in parallel.
+ */
+public interface CorpusSource {
+
+    /**
+     * Returns true if the source is backed by the databases (changes can be
+     * saved and synchronized).
+     *
+     * @return
+     */
+    boolean isOnline();
+
+    /**
+     * Returns the syntactic tree of an argument, or null if not available.
+     *
+     * @param argumentId
+     * @return
+     * @throws Exception
+     */
+    String loadArgumentSyntacticTree(String argumentId) throws Exception;
+
+    /**
+     * Returns the texts of the given comments (only needed for the comments
+     * loaded without their text).
+     *
+     * @param ids
+     * @return
+     * @throws Exception
+     */
+    Map<Integer, String> loadCommentTexts(Collection<Integer> ids) throws Exception;
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    Map<Integer, DMComment> loadComments() throws Exception;
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    Map<Integer, ControversyScore> loadControversyScores() throws Exception;
+
+    /**
+     * Returns the arguments up to a maximum tree level, grouped by proposal.
+     *
+     * @param maxTreeLevel
+     * @return
+     * @throws Exception
+     */
+    Map<Integer, List<Argument>> loadProposalArguments(int maxTreeLevel) throws Exception;
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    Map<Integer, DMProposal> loadProposals() throws Exception;
+
+    /**
+     * Returns the proposal summaries, with their terms encoded in the given
+     * dictionary.
+     *
+     * @param dictionary
+     * @return
+     * @throws Exception
+     */
+    Map<Integer, DMProposalSummary> loadProposalSummaries(DMDictionary dictionary) throws Exception;
+
+}
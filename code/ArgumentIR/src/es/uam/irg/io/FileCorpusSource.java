@@ -0,0 +1,285 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.io;
+
+import com.opencsv.CSVReader;
+import es.uam.irg.decidemadrid.controversy.ControversyScore;
+import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMCommentStore;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
+import es.uam.irg.decidemadrid.entities.DMProposal;
+import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.utils.EventLogger;
+import es.uam.irg.utils.IntObjectMap;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.json.JSONObject;
+
+/**
+ * Corpus source backed by local dump files, so the tool can run without the
+ * databases. The folder contains:
+ *
+ * - proposals.jsonl or proposals.csv (id, code, title, userId, date, summary,
+ * text, numComments, numSupports, url, categories, districts, topics)
+ * - comments.jsonl or comments.csv (id, parentId, proposalId, userId, date,
+ * time, text, numVotes, numPositiveVotes, numNegativeVotes)
+ * - arguments.json (the map of argument IDs to arguments exported by the
+ * miner, as in arguments80.json)
+ * - controversy.jsonl or controversy.csv (proposalId, value), optional
+ *
+ * The CSV files have a header row, and the summary terms are comma-separated.
+ * All files are streamed record by record.
+ */
+public class FileCorpusSource implements CorpusSource {
+
+    // Class constants
+    public static final String ARGUMENTS_FILENAME = "arguments.json";
+    public static final String COMMENTS_FILENAME = "comments";
+    public static final String CONTROVERSY_FILENAME = "controversy";
+    public static final String PROPOSALS_FILENAME = "proposals";
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    // Class members
+    private final File folder;
+    private IntObjectMap<DMProposal> proposals;
+    private IntObjectMap<String[]> summaryTerms;
+
+    /**
+     * Constructor.
+     *
+     * @param folder
+     */
+    public FileCorpusSource(String folder) {
+        this.folder = new File(folder);
+        this.proposals = null;
+        this.summaryTerms = null;
+    }
+
+    @Override
+    public boolean isOnline() {
+        return false;
+    }
+
+    /**
+     * The syntactic trees are loaded with the arguments (if the file has
+     * them).
+     *
+     * @param argumentId
+     * @return
+     */
+    @Override
+    public String loadArgumentSyntacticTree(String argumentId) {
+        return null;
+    }
+
+    /**
+     * The comment texts are loaded with the comments.
+     *
+     * @param ids
+     * @return
+     */
+    @Override
+    public Map<Integer, String> loadCommentTexts(Collection<Integer> ids) {
+        return new HashMap<>();
+    }
+
+    @Override
+    public Map<Integer, DMComment> loadComments() throws IOException {
+        DMCommentStore comments = new DMCommentStore();
+
+        readRecords(COMMENTS_FILENAME, true, record -> {
+            long created = DMCommentStore.toEpochSeconds(record.optString("date"), record.optString("time"));
+            comments.add(record.getInt("id"), record.optInt("parentId"), record.getInt("proposalId"), record.optInt("userId"), created,
+                    record.optString("text"), record.optInt("numVotes"), record.optInt("numPositiveVotes"), record.optInt("numNegativeVotes"));
+        });
+        comments.compact();
+
+        return comments;
+    }
+
+    @Override
+    public Map<Integer, ControversyScore> loadControversyScores() throws IOException {
+        IntObjectMap<ControversyScore> controversyScores = new IntObjectMap<>();
+
+        readRecords(CONTROVERSY_FILENAME, false, record -> {
+            int proposalId = record.getInt("proposalId");
+            controversyScores.put(proposalId, new ControversyScore(proposalId, record.getDouble("value")));
+        });
+
+        return controversyScores;
+    }
+
+    @Override
+    public Map<Integer, List<Argument>> loadProposalArguments(int maxTreeLevel) throws IOException {
+        IntObjectMap<List<Argument>> arguments = new IntObjectMap<>();
+        File file = new File(folder, ARGUMENTS_FILENAME);
+        int[] nInvalid = {0};
+
+        try ( Reader reader = openReader(file)) {
+            ArgumentImporter.readArguments(reader, (argumentId, value) -> {
+                Argument arg = ArgumentImporter.parseArgument(argumentId, value);
+                if (arg == null) {
+                    nInvalid[0]++;
+                } else if (arg.getTreeLevel() <= maxTreeLevel) {
+                    arguments.computeIfAbsent(arg.getProposalId(), k -> new ArrayList<>()).add(arg);
+                }
+            });
+        }
+        if (nInvalid[0] > 0) {
+            EventLogger.warn("Invalid arguments skipped", "file", file.getName(), "count", nInvalid[0]);
+        }
+
+        return arguments;
+    }
+
+    @Override
+    public Map<Integer, DMProposal> loadProposals() throws IOException {
+        readProposals();
+        return new IntObjectMap<>(proposals);
+    }
+
+    /**
+     * The terms are normalized and de-duplicated as in the database loader
+     * (see DMDictionary.normalize).
+     *
+     * @param dictionary
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public Map<Integer, DMProposalSummary> loadProposalSummaries(DMDictionary dictionary) throws IOException {
+        readProposals();
+        IntObjectMap<DMProposalSummary> summaries = new IntObjectMap<>(summaryTerms.size());
+        summaryTerms.forEachEntry((id, terms) -> {
+            summaries.put(id, new DMProposalSummary(id, terms[0], terms[1], terms[2], dictionary));
+        });
+
+        return summaries;
+    }
+
+    /**
+     * Returns the dump file of a record type (JSONL or CSV), or null if there
+     * is none.
+     *
+     * @param name
+     * @return
+     */
+    private File getRecordsFile(String name) {
+        File file = new File(folder, name + ".jsonl");
+        if (!file.exists()) {
+            file = new File(folder, name + ".csv");
+        }
+        return (file.exists() ? file : null);
+    }
+
+    /**
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private static Reader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Reads the proposals file once (both the proposals and their summaries
+     * come from it).
+     *
+     * @throws IOException
+     */
+    private synchronized void readProposals() throws IOException {
+        if (proposals != null) {
+            return;
+        }
+
+        IntObjectMap<DMProposal> records = new IntObjectMap<>();
+        IntObjectMap<String[]> terms = new IntObjectMap<>();
+        readRecords(PROPOSALS_FILENAME, true, record -> {
+            int id = record.getInt("id");
+            String url = record.optString("url");
+            if (url.startsWith(DMProposal.HOME_PAGE)) {
+                url = url.substring(DMProposal.HOME_PAGE.length());
+            }
+            records.put(id, new DMProposal(id, record.optString("code"), record.optString("title"), record.optInt("userId"),
+                    record.optString("date"), record.optString("summary"), record.optString("text", null),
+                    record.optInt("numComments"), record.optInt("numSupports"), url));
+            terms.put(id, new String[]{record.optString("categories"), record.optString("districts"), record.optString("topics")});
+        });
+
+        this.summaryTerms = terms;
+        this.proposals = records;
+    }
+
+    /**
+     * Streams the records of a dump file. CSV rows are converted to JSON
+     * objects keyed by the header columns.
+     *
+     * @param name
+     * @param required
+     * @param handler
+     * @throws IOException
+     */
+    private void readRecords(String name, boolean required, Consumer<JSONObject> handler) throws IOException {
+        File file = getRecordsFile(name);
+        if (file == null) {
+            if (required) {
+                throw new FileNotFoundException("No " + name + ".jsonl or " + name + ".csv file in " + folder.getPath());
+            }
+            return;
+        }
+
+        try ( Reader reader = openReader(file)) {
+            if (file.getName().endsWith(".jsonl")) {
+                BufferedReader lines = (BufferedReader) reader;
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        handler.accept(new JSONObject(line));
+                    }
+                }
+
+            } else {
+                CSVReader csv = new CSVReader(reader);
+                String[] header = csv.readNext();
+                String[] row;
+                while (header != null && (row = csv.readNext()) != null) {
+                    JSONObject record = new JSONObject();
+                    for (int i = 0; i < header.length && i < row.length; i++) {
+                        record.put(header[i], row[i]);
+                    }
+                    handler.accept(record);
+                }
+            }
+        }
+    }
+
+}
@@ -157,6 +157,28 @@ public class IOManager {
         return taxonomy;
     }
 
+    /**
+     * Reads a list of queries (one per line, blank lines are ignored).
+     *
+     * @param filepath
+     * @return
+     */
+    public static List<String> readQueryList(String filepath) {
+        List<String> queries = new ArrayList<>();
+        String content = FileUtils.readFile(filepath);
+
+        if (!StringUtils.isEmpty(content)) {
+            for (String query : content.split("\n")) {
+                query = query.replace("\r", "").trim();
+                if (!query.isEmpty()) {
+                    queries.add(query);
+                }
+            }
+        }
+
+        return queries;
+    }
+
     /**
      *
      * @param filepath
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.ir;
+
+import es.uam.irg.io.IOManager;
+import es.uam.irg.ir.eval.EvaluationResult;
+import es.uam.irg.ir.eval.RankingEvaluator;
+import es.uam.irg.ir.gui.ArgumentIRForm;
+import es.uam.irg.ir.gui.DataModel;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline evaluation program. Sweeps the re-ranking parameters (LAMBDA and
+ * argument relevance weights) and reports nDCG, MAP and P@10 against the
+ * stored argument labels.
+ */
+public class ArgumentEval {
+
+    // Program constants
+    private static final String QUERIES_FILEPATH = "Resources/config/queries.txt";
+    private static final int N_LAMBDAS = 101;
+    private static final int N_TOP_RESULTS = 10;
+
+    /**
+     * @param args the command line arguments: [queries file] [similarity]
+     */
+    public static void main(String[] args) {
+        String queriesFilepath = (args.length > 0 ? args[0] : QUERIES_FILEPATH);
+        String similarity = (args.length > 1 ? args[1] : "BM25");
+
+        // Program hyperparameters from JSON config file
+        Map<String, Object> params = InitParams.readInitParams();
+        String language = (String) params.get("language");
+        String dataPath = (String) params.get("data_path");
+        System.out.format(">> Language: %s, Data folder path: %s\n", language, dataPath);
+
+        List<String> queries = IOManager.readQueryList(queriesFilepath);
+        System.out.format(">> Number of queries: %d, similarity: %s\n", queries.size(), similarity);
+
+        // Data loading, IR index creation and evaluation
+        DataModel model = new DataModel(language, dataPath, ArgumentIRForm.DECIMAL_FORMAT, ArgumentIRForm.DATE_FORMAT);
+        RankingEvaluator evaluator = model.createRankingEvaluator();
+
+        double[] lambdas = new double[N_LAMBDAS];
+        for (int i = 0; i < N_LAMBDAS; i++) {
+            lambdas[i] = (double) i / (N_LAMBDAS - 1);
+        }
+        List<ArgumentScorer> scorers = List.of(
+                ArgumentScorer.DEFAULT,
+                new ArgumentScorer(3.0, 2.0, 0.0, -2.0, 0.5),
+                new ArgumentScorer(3.0, 2.0, 1.0, -2.0, 1.0),
+                new ArgumentScorer(4.0, 2.0, 0.5, -4.0, 0.25)
+        );
+
+        long start = System.nanoTime();
+        List<EvaluationResult> results = evaluator.sweep(queries, similarity, lambdas, scorers);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        System.out.format(">> Evaluated %d configurations in %d ms\n", results.size(), elapsed);
+        results.stream().limit(N_TOP_RESULTS).forEach(result -> {
+            System.out.println(" - " + result);
+        });
+    }
+
+}
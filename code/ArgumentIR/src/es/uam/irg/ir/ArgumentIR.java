@@ -18,7 +18,11 @@
 package es.uam.irg.ir;
 
 import es.uam.irg.ir.gui.ArgumentIRForm;
+import es.uam.irg.metrics.LogMetricsExporter;
+import es.uam.irg.metrics.MetricsRegistry;
+import es.uam.irg.metrics.PrometheusExporter;
 import es.uam.irg.utils.FunctionUtils;
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -38,8 +42,40 @@ public class ArgumentIR {
         String dataPath = (String) params.get("data_path");
         System.out.format(">> Language: %s, Data folder path: %s\n", language, dataPath);
 
+        // Metrics exporters
+        startMetrics(InitParams.getInt(params, "metrics_log_interval", 0), InitParams.getInt(params, "metrics_port", 0));
+
         // Show tool gui
-        showWinform(language, dataPath);
+        int syncInterval = InitParams.getInt(params, "argument_sync_interval", 0);
+        int refreshInterval = InitParams.getInt(params, "corpus_refresh_interval", 0);
+        int snapshotTtl = InitParams.getInt(params, "snapshot_ttl", 0);
+        showWinform(language, dataPath, syncInterval, refreshInterval, snapshotTtl, InitParams.getString(params, "offline_path", ""));
+    }
+
+    /**
+     * Starts the metrics exporters: a periodic log line and (optionally) a
+     * Prometheus text endpoint.
+     *
+     * @param logInterval seconds between log lines (0 disables it)
+     * @param port HTTP port of the Prometheus endpoint (0 disables it)
+     */
+    private static void startMetrics(int logInterval, int port) {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+
+        if (logInterval > 0) {
+            registry.addExporter(new LogMetricsExporter(), logInterval);
+        }
+
+        if (port > 0) {
+            try {
+                PrometheusExporter exporter = new PrometheusExporter(registry);
+                exporter.start(port);
+                registry.addExporter(exporter, 0);
+                System.out.format(">> Metrics endpoint: http://localhost:%d%s\n", port, PrometheusExporter.PATH);
+            } catch (IOException ex) {
+                System.err.println("Metrics error: " + ex.getMessage());
+            }
+        }
     }
 
     /**
@@ -47,8 +83,12 @@ public class ArgumentIR {
      *
      * @param language
      * @param datapath
+     * @param syncInterval
+     * @param refreshInterval
+     * @param snapshotTtl
+     * @param offlinePath
      */
-    private static void showWinform(String language, String dataPath) {
+    private static void showWinform(String language, String dataPath, int syncInterval, int refreshInterval, int snapshotTtl, String offlinePath) {
         try {
             for (javax.swing.UIManager.LookAndFeelInfo info : javax.swing.UIManager.getInstalledLookAndFeels()) {
                 if ("Nimbus".equals(info.getName())) {
@@ -63,7 +103,7 @@ public class ArgumentIR {
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(() -> {
             FunctionUtils.printWithDatestamp(">> ARG-IR BEGINS");
-            new ArgumentIRForm(language, dataPath);
+            new ArgumentIRForm(language, dataPath, syncInterval, refreshInterval, snapshotTtl, offlinePath);
             FunctionUtils.printWithDatestamp(">> ARG-IR ENDS");
         });
     }
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.ir;
+
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.nlp.am.arguments.ArgumentLabel;
+import es.uam.irg.utils.IntDoubleMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Argumentative score function. Logarithm of the weighted sum of the topical
+ * relevance of the arguments in a document.
+ */
+public class ArgumentScorer {
+
+    // Class constants
+    public static final ArgumentScorer DEFAULT = new ArgumentScorer(3.0, 2.0, 1.0, -2.0, 0.5);
+    public static final int N_CLASSES = 5;
+    public static final int VERY_RELEVANT = 0;
+    public static final int RELEVANT = 1;
+    public static final int NOT_RELEVANT = 2;
+    public static final int SPAM = 3;
+    public static final int UNLABELED = 4;
+    private static final double MIN_SCORE = 0.150515;
+
+    // Class members
+    private final double[] weights;
+
+    /**
+     * Constructor.
+     *
+     * @param veryRelevant
+     * @param relevant
+     * @param notRelevant
+     * @param spam
+     * @param unlabeled
+     */
+    public ArgumentScorer(double veryRelevant, double relevant, double notRelevant, double spam, double unlabeled) {
+        this.weights = new double[]{veryRelevant, relevant, notRelevant, spam, unlabeled};
+    }
+
+    /**
+     * Returns the relevance class of an argument label (UNLABELED when there is
+     * no label or it is unknown).
+     *
+     * @param label
+     * @return
+     */
+    public static int getLabelClass(ArgumentLabel label) {
+        if (label != null) {
+            String relevance = label.getRelevance().toUpperCase();
+
+            if (relevance.equals("VERY_RELEVANT")) {
+                return VERY_RELEVANT;
+            } else if (relevance.equals("RELEVANT")) {
+                return RELEVANT;
+            } else if (relevance.equals("NOT_RELEVANT")) {
+                return NOT_RELEVANT;
+            } else if (relevance.equals("SPAM")) {
+                return SPAM;
+            }
+            return -1;
+        }
+        return UNLABELED;
+    }
+
+    /**
+     * Counts the arguments of a document per relevance class.
+     *
+     * @param args
+     * @param labels
+     * @return
+     */
+    public static int[] getLabelCounts(List<Argument> args, Map<String, ArgumentLabel> labels) {
+        int[] counts = new int[N_CLASSES];
+
+        for (Argument arg : args) {
+            int labelClass = getLabelClass(labels.get(arg.getId()));
+            if (labelClass >= 0) {
+                counts[labelClass]++;
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Calculates the argumentative score of all documents.
+     *
+     * @param proposalArguments
+     * @param labels
+     * @return
+     */
+    public IntDoubleMap getArgumentativeScores(Map<Integer, List<Argument>> proposalArguments, Map<String, ArgumentLabel> labels) {
+        IntDoubleMap scores = new IntDoubleMap(proposalArguments.size());
+
+        for (Map.Entry<Integer, List<Argument>> entry : proposalArguments.entrySet()) {
+            scores.put(entry.getKey().intValue(), getScore(entry.getValue(), labels));
+        }
+
+        return scores;
+    }
+
+    /**
+     * Calculates the argumentative score of a single document.
+     *
+     * @param args
+     * @param labels
+     * @return
+     */
+    public double getScore(List<Argument> args, Map<String, ArgumentLabel> labels) {
+        return getScore(getLabelCounts(args, labels));
+    }
+
+    /**
+     * Calculates the argumentative score from the per-class argument counts.
+     *
+     * @param counts
+     * @return
+     */
+    public double getScore(int[] counts) {
+        double score = 0.0;
+
+        for (int i = 0; i < N_CLASSES; i++) {
+            score += counts[i] * weights[i];
+        }
+
+        // Normalization
+        if (score <= 1) {
+            score = MIN_SCORE;
+        } else {
+            score = Math.log(score);
+        }
+
+        return score;
+    }
+
+    /**
+     *
+     * @param labelClass
+     * @return
+     */
+    public double getWeight(int labelClass) {
+        return this.weights[labelClass];
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return String.format("[vr: %s, r: %s, nr: %s, sp: %s, nl: %s]", weights[0], weights[1], weights[2], weights[3], weights[4]);
+    }
+
+}
@@ -17,16 +17,20 @@
  */
 package es.uam.irg.ir;
 
+import es.uam.irg.decidemadrid.entities.DMDictionary;
 import es.uam.irg.decidemadrid.entities.DMProposal;
 import es.uam.irg.decidemadrid.entities.DMProposalSummary;
-import es.uam.irg.utils.FunctionUtils;
+import es.uam.irg.metrics.LatencyHistogram;
+import es.uam.irg.metrics.MetricsRegistry;
+import es.uam.irg.metrics.events.IndexingEvent;
+import es.uam.irg.metrics.events.SearchEvent;
+import es.uam.irg.utils.EventLogger;
+import es.uam.irg.utils.IntDoubleMap;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -36,11 +40,15 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.similarities.BM25Similarity;
 import org.apache.lucene.search.similarities.ClassicSimilarity;
@@ -54,11 +62,20 @@ import org.apache.lucene.store.Directory;
  */
 public class InfoRetriever {
 
+    public static final String CATEGORY_FIELD = "category_id";
+    public static final String DISTRICT_FIELD = "district_id";
     public static final double LAMBDA = 0.35;
+    public static final String TOPIC_FIELD = "topic_id";
 
     // The same analyzer should be used for indexing and searching
     private final StandardAnalyzer analyzer;
     private final Directory index;
+    private int nDocs;
+
+    // Latency histograms
+    private final LatencyHistogram parseTimer;
+    private final LatencyHistogram rerankTimer;
+    private final LatencyHistogram searchTimer;
 
     /**
      * Constructor
@@ -66,6 +83,12 @@ public class InfoRetriever {
     public InfoRetriever() {
         this.analyzer = new StandardAnalyzer();
         this.index = new ByteBuffersDirectory();
+        this.nDocs = 0;
+
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        this.parseTimer = registry.histogram(MetricsRegistry.QUERY_PARSE);
+        this.searchTimer = registry.histogram(MetricsRegistry.LUCENE_SEARCH);
+        this.rerankTimer = registry.histogram(MetricsRegistry.RERANK);
     }
 
     /**
@@ -76,14 +99,8 @@ public class InfoRetriever {
      * @param proposalSummaries
      */
     public void createDocumentIndex(Map<Integer, DMProposal> proposals, Map<Integer, DMProposalSummary> proposalSummaries) {
-        DMProposal proposal;
-        int proposalId;
-        String code;
-        String title;
-        String summary;
-        String categories;
-        String districts;
-        String topics;
+        IndexingEvent event = new IndexingEvent();
+        event.begin();
 
         try {
             // Storing proposals
@@ -91,23 +108,50 @@ public class InfoRetriever {
             try ( IndexWriter w = new IndexWriter(index, config)) {
 
                 for (Map.Entry<Integer, DMProposal> entry : proposals.entrySet()) {
-                    proposalId = entry.getKey();
-                    proposal = entry.getValue();
-                    code = proposal.getCode();
-                    title = proposal.getTitle();
-                    summary = proposal.getSummary();
-                    categories = proposalSummaries.get(proposalId).getCategories();
-                    districts = proposalSummaries.get(proposalId).getDistricts();
-                    topics = proposalSummaries.get(proposalId).getTopics();
-
-                    addDocToIndex(w, proposalId, code, title, summary, categories, districts, topics);
+                    addDocToIndex(w, entry.getValue(), proposalSummaries.get(entry.getKey()));
                 }
+                nDocs = w.getDocStats().numDocs;
             }
 
         } catch (IOException ex) {
-            Logger.getLogger(InfoRetriever.class.getName()).log(Level.SEVERE, null, ex);
+            EventLogger.error("Error creating the index", ex);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.documents = nDocs;
+            event.bytes = getIndexBytes();
+            event.commit();
+        }
+
+    }
+
+    /**
+     * Returns the size (in bytes) of the in-memory index.
+     *
+     * @return
+     */
+    public long getIndexBytes() {
+        long size = 0;
+
+        try {
+            for (String file : index.listAll()) {
+                size += index.fileLength(file);
+            }
+        } catch (IOException ex) {
+            EventLogger.error("Error reading the index size", ex);
         }
 
+        return size;
+    }
+
+    /**
+     * Returns the number of indexed documents.
+     *
+     * @return
+     */
+    public int getIndexSize() {
+        return nDocs;
     }
 
     /**
@@ -134,80 +178,289 @@ public class InfoRetriever {
      * @return
      */
     public List<Integer> retrieveInformation(String querystr, String similarity, Map<Integer, Double> scores) {
-        List<Integer> docList = new ArrayList<>();
+        return retrieveInformation(querystr, similarity, scores, LAMBDA);
+    }
+
+    /**
+     * Information retrieval module (5 and 6).Searches the full-text index for
+     * documents that meet the keyword-based query and ranks the results
+     * according to a specified criterion.
+     *
+     * @param querystr
+     * @param similarity
+     * @param scores
+     * @param lambda
+     * @return
+     */
+    public List<Integer> retrieveInformation(String querystr, String similarity, Map<Integer, Double> scores, double lambda) {
+        return retrieveInformation(querystr, similarity, scores, lambda, null);
+    }
+
+    /**
+     * Information retrieval module (5 and 6). Searches the full-text index for
+     * the documents that meet the keyword-based query and the filter (see
+     * getTermFilter), and ranks the results according to a specified
+     * criterion.
+     *
+     * @param querystr
+     * @param similarity
+     * @param scores
+     * @param lambda
+     * @param filter
+     * @return
+     */
+    public List<Integer> retrieveInformation(String querystr, String similarity, Map<Integer, Double> scores, double lambda, Query filter) {
+        Map<Integer, Double> baseScores = getBaseScores(querystr, similarity, filter);
+        return rerank(baseScores, scores, lambda);
+    }
+
+    /**
+     * Returns a filter that matches the documents with any of the given terms
+     * in a field (CATEGORY_FIELD, DISTRICT_FIELD or TOPIC_FIELD). The terms
+     * are looked up in the shared dictionary, without adding them to it.
+     *
+     * @param field
+     * @param terms
+     * @return
+     */
+    public static Query getTermFilter(String field, String... terms) {
+        DMDictionary dictionary = DMDictionary.getInstance();
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String term : terms) {
+            int termId = dictionary.getId(DMDictionary.normalize(term));
+            if (termId >= 0) {
+                builder.add(new TermQuery(new Term(field, Integer.toString(termId))), BooleanClause.Occur.SHOULD);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Searches the full-text index and returns the similarity score of each
+     * matching document, in Lucene ranking order.
+     *
+     * @param querystr
+     * @param similarity
+     * @return
+     */
+    public Map<Integer, Double> getBaseScores(String querystr, String similarity) {
+        return getBaseScores(querystr, similarity, null);
+    }
+
+    /**
+     * Searches the full-text index and returns the similarity score of each
+     * matching document that also matches the filter (which does not change
+     * the scores), in Lucene ranking order.
+     *
+     * @param querystr
+     * @param similarity
+     * @param filter may be null
+     * @return
+     */
+    public Map<Integer, Double> getBaseScores(String querystr, String similarity, Query filter) {
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        SearchEvent event = new SearchEvent();
+        event.begin();
 
         try {
             // The "title" arg specifies the default field to use when no field is explicitly specified in the query
+            long start = System.nanoTime();
             Query q = new QueryParser("title", analyzer).parse(querystr);
+            if (filter != null) {
+                q = new BooleanQuery.Builder()
+                        .add(q, BooleanClause.Occur.MUST)
+                        .add(filter, BooleanClause.Occur.FILTER)
+                        .build();
+            }
+            parseTimer.recordSince(start);
 
             // Search within the index
+            start = System.nanoTime();
             try ( IndexReader reader = DirectoryReader.open(index)) {
                 IndexSearcher searcher = new IndexSearcher(reader);
                 searcher.setSimilarity(getSimilarityFunction(similarity));
                 TopDocs docs = searcher.search(q, Integer.MAX_VALUE);
                 ScoreDoc[] hits = docs.scoreDocs;
 
-                if (hits.length > 0) {
-                    Map<Integer, Double> result = new HashMap<>();
+                // Store results
+                for (int i = 0; i < hits.length; ++i) {
+                    int docId = hits[i].doc;
+                    Document doc = searcher.doc(docId);
+                    int proposalId = Integer.parseInt(doc.get("id"));
+                    result.put(proposalId, (double) hits[i].score);
+                }
+            }
+            searchTimer.recordSince(start);
 
-                    // Store results
-                    for (int i = 0; i < hits.length; ++i) {
-                        int docId = hits[i].doc;
-                        Document doc = searcher.doc(docId);
-                        int proposalId = Integer.parseInt(doc.get("id"));
+        } catch (ParseException | IOException ex) {
+            EventLogger.error("Error searching the index", ex);
+        }
 
-                        // Calculate score
-                        double proposalScore = hits[i].score;
-                        if (scores != null) {
-                            double argumentativeScore = (scores.containsKey(proposalId) ? scores.get(proposalId) : 0.0);
-                            proposalScore = LAMBDA * proposalScore + (1 - LAMBDA) * argumentativeScore;
-                        }
+        event.query = querystr;
+        event.similarity = similarity;
+        event.hits = result.size();
+        event.commit();
 
-                        result.put(proposalId, proposalScore);
-                    }
+        return result;
+    }
 
-                    // Final sorting
-                    if (scores != null) {
-                        docList.addAll(FunctionUtils.sortMapByDblValue(result).keySet());
-                    } else {
-                        docList.addAll(result.keySet());
-                    }
-                }
+    /**
+     * Argument-based re-ranking module (6). Linearly combines the similarity
+     * scores with the given document scores. Documents with the same combined
+     * score keep their similarity order.
+     *
+     * @param baseScores
+     * @param scores
+     * @param lambda
+     * @return
+     */
+    public List<Integer> rerank(Map<Integer, Double> baseScores, Map<Integer, Double> scores, double lambda) {
+        List<Integer> docList = new ArrayList<>();
+        long start = System.nanoTime();
+
+        if (scores == null) {
+            docList.addAll(baseScores.keySet());
 
+        } else if (!baseScores.isEmpty()) {
+            IntDoubleMap docScores = (scores instanceof IntDoubleMap ? (IntDoubleMap) scores : null);
+            int n = baseScores.size();
+            int[] proposalIds = new int[n];
+            double[] result = new double[n];
+            int[] order = new int[n];
+            int i = 0;
+
+            for (Map.Entry<Integer, Double> entry : baseScores.entrySet()) {
+                int proposalId = entry.getKey();
+                double argumentativeScore = (docScores != null ? docScores.getOrDefault(proposalId, 0.0) : scores.getOrDefault(proposalId, 0.0));
+                proposalIds[i] = proposalId;
+                result[i] = lambda * entry.getValue() + (1 - lambda) * argumentativeScore;
+                order[i] = i;
+                i++;
             }
 
-        } catch (ParseException | IOException ex) {
-            Logger.getLogger(InfoRetriever.class.getName()).log(Level.SEVERE, null, ex);
+            // Final sorting (stable, by descending score)
+            sortByScore(order, result);
+            for (int ix : order) {
+                docList.add(proposalIds[ix]);
+            }
         }
+        rerankTimer.recordSince(start);
 
         return docList;
     }
 
     /**
+     * Adds (or replaces) the given proposals in the existing index, without
+     * rebuilding it.
      *
+     * @param proposals
+     * @param proposalSummaries
+     */
+    public void updateDocumentIndex(Map<Integer, DMProposal> proposals, Map<Integer, DMProposalSummary> proposalSummaries) {
+        IndexingEvent event = new IndexingEvent();
+        event.begin();
+
+        try {
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            try ( IndexWriter w = new IndexWriter(index, config)) {
+
+                for (DMProposal proposal : proposals.values()) {
+                    int proposalId = proposal.getId();
+                    w.deleteDocuments(new Term("id", "" + proposalId));
+                    addDocToIndex(w, proposal, proposalSummaries.get(proposalId));
+                }
+                w.commit();
+                nDocs = w.getDocStats().numDocs;
+            }
+
+        } catch (IOException ex) {
+            EventLogger.error("Error updating the index", ex);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.documents = proposals.size();
+            event.bytes = getIndexBytes();
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds a proposal to the index. The categories, districts and topics are
+     * indexed as text (for the queries) and as dictionary ids (for the
+     * filters), and are not stored: the reports read them from the summaries.
      *
      * @param iw
-     * @param proposalId
-     * @param code
-     * @param title
+     * @param proposal
      * @param summary
-     * @param categories
-     * @param districts
-     * @param topics
      * @throws IOException
      */
-    private void addDocToIndex(IndexWriter iw, int proposalId, String code, String title, String summary, String categories, String districts, String topics) throws IOException {
+    private void addDocToIndex(IndexWriter iw, DMProposal proposal, DMProposalSummary summary) throws IOException {
         Document doc = new Document();
-        doc.add(new StringField("id", "" + proposalId, Field.Store.YES));
-        doc.add(new TextField("code", "" + code, Field.Store.YES));
-        doc.add(new TextField("title", title, Field.Store.YES));
-        doc.add(new TextField("summary", summary, Field.Store.YES));
-        doc.add(new TextField("categories", categories.replace(",", " "), Field.Store.YES));
-        doc.add(new TextField("districts", districts.replace(",", " "), Field.Store.YES));
-        doc.add(new TextField("topics", topics.replace(",", " "), Field.Store.YES));
+        doc.add(new StringField("id", "" + proposal.getId(), Field.Store.YES));
+        doc.add(new TextField("code", "" + proposal.getCode(), Field.Store.YES));
+        doc.add(new TextField("title", proposal.getTitle(), Field.Store.YES));
+        doc.add(new TextField("summary", proposal.getSummary(), Field.Store.YES));
+        if (summary != null) {
+            doc.add(new TextField("categories", summary.getCategories(" "), Field.Store.NO));
+            doc.add(new TextField("districts", summary.getDistricts(" "), Field.Store.NO));
+            doc.add(new TextField("topics", summary.getTopics(" "), Field.Store.NO));
+            addTermIds(doc, CATEGORY_FIELD, summary.getCategoryIds());
+            addTermIds(doc, DISTRICT_FIELD, summary.getDistrictIds());
+            addTermIds(doc, TOPIC_FIELD, summary.getTopicIds());
+        }
         iw.addDocument(doc);
     }
 
+    /**
+     *
+     * @param doc
+     * @param field
+     * @param termIds
+     */
+    private static void addTermIds(Document doc, String field, int[] termIds) {
+        for (int termId : termIds) {
+            doc.add(new StringField(field, Integer.toString(termId), Field.Store.NO));
+        }
+    }
+
+    /**
+     * Sorts the positions by descending score with a (stable) bottom-up merge
+     * sort, so documents with the same score keep their order and no boxed
+     * positions are needed.
+     *
+     * @param order the positions to sort
+     * @param scores the score of each position
+     */
+    private static void sortByScore(int[] order, double[] scores) {
+        int n = order.length;
+        int[] src = order;
+        int[] dst = new int[n];
+
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j < hi && (i >= mid || Double.compare(scores[src[j]], scores[src[i]]) > 0)) {
+                        dst[k] = src[j++];
+                    } else {
+                        dst[k] = src[i++];
+                    }
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, n);
+        }
+    }
+
     /**
      *
      * @param similarity
@@ -50,10 +50,51 @@ public class InitParams {
 
                 String datapath = json.getString("data_path");
                 params.put("data_path", datapath);
+
+                // Metrics parameters
+                params.put("metrics_log_interval", json.optInt("metrics_log_interval", 0));
+                params.put("metrics_port", json.optInt("metrics_port", 0));
+
+                // Data synchronization parameters
+                params.put("argument_sync_interval", json.optInt("argument_sync_interval", 0));
+                params.put("corpus_refresh_interval", json.optInt("corpus_refresh_interval", 0));
+
+                // Data snapshot parameters
+                params.put("snapshot_ttl", json.optInt("snapshot_ttl", 0));
+
+                // Offline mode parameters
+                params.put("offline_path", json.optString("offline_path", ""));
             }
         }
 
         return params;
     }
 
+    /**
+     * Returns an integer parameter, or the default value if it is not set
+     * (e.g. the config file is missing or incomplete).
+     *
+     * @param params
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public static int getInt(Map<String, Object> params, String key, int defaultValue) {
+        Object value = params.get(key);
+        return (value != null ? Integer.parseInt(value.toString()) : defaultValue);
+    }
+
+    /**
+     * Returns a text parameter, or the default value if it is not set.
+     *
+     * @param params
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public static String getString(Map<String, Object> params, String key, String defaultValue) {
+        Object value = params.get(key);
+        return (value != null ? value.toString() : defaultValue);
+    }
+
 }
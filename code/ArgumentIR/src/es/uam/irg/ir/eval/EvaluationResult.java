@@ -0,0 +1,90 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.ir.eval;
+
+import es.uam.irg.ir.ArgumentScorer;
+
+/**
+ * Ranking evaluation result of a single parameter configuration.
+ */
+public class EvaluationResult {
+
+    private final double lambda;
+    private final double map;
+    private final int nQueries;
+    private final double ndcg;
+    private final double precision;
+    private final ArgumentScorer scorer;
+    private final String similarity;
+
+    /**
+     * Constructor.
+     *
+     * @param similarity
+     * @param lambda
+     * @param scorer
+     * @param ndcg
+     * @param map
+     * @param precision
+     * @param nQueries
+     */
+    public EvaluationResult(String similarity, double lambda, ArgumentScorer scorer, double ndcg, double map, double precision, int nQueries) {
+        this.similarity = similarity;
+        this.lambda = lambda;
+        this.scorer = scorer;
+        this.ndcg = ndcg;
+        this.map = map;
+        this.precision = precision;
+        this.nQueries = nQueries;
+    }
+
+    public double getLambda() {
+        return this.lambda;
+    }
+
+    public double getMAP() {
+        return this.map;
+    }
+
+    public int getNQueries() {
+        return this.nQueries;
+    }
+
+    public double getNDCG() {
+        return this.ndcg;
+    }
+
+    public double getPrecision() {
+        return this.precision;
+    }
+
+    public ArgumentScorer getScorer() {
+        return this.scorer;
+    }
+
+    public String getSimilarity() {
+        return this.similarity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, lambda: %.2f, weights: %s -> nDCG@%d: %.4f, MAP: %.4f, P@%d: %.4f (%d queries)",
+                similarity, lambda, scorer, RankingEvaluator.CUTOFF, ndcg, map, RankingEvaluator.CUTOFF, precision, nQueries);
+    }
+
+}
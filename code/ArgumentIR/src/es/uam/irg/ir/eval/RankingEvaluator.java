@@ -0,0 +1,304 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.ir.eval;
+
+import es.uam.irg.ir.ArgumentScorer;
+import es.uam.irg.ir.InfoRetriever;
+import es.uam.irg.nlp.am.arguments.Argument;
+import es.uam.irg.nlp.am.arguments.ArgumentLabel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Offline ranking evaluation engine. The similarity scores of each query are
+ * computed once and cached, so that the re-ranking parameters (LAMBDA and the
+ * argument relevance weights) can be swept in parallel without searching the
+ * index again.
+ */
+public class RankingEvaluator {
+
+    // Class constants
+    public static final int CUTOFF = 10;
+
+    // Class members
+    private final Map<Integer, Integer> gains;
+    private final Map<Integer, int[]> labelCounts;
+    private final InfoRetriever retriever;
+    private final Map<String, QueryRun> runs;
+
+    /**
+     * Constructor.
+     *
+     * @param retriever
+     * @param proposalArguments
+     * @param labels argument labels used by the re-ranking function
+     * @param judgements argument labels used as relevance judgements
+     */
+    public RankingEvaluator(InfoRetriever retriever, Map<Integer, List<Argument>> proposalArguments, Map<String, ArgumentLabel> labels, Map<String, ArgumentLabel> judgements) {
+        this.retriever = retriever;
+        this.runs = new ConcurrentHashMap<>();
+        this.labelCounts = new HashMap<>();
+        this.gains = new HashMap<>();
+
+        // Per-proposal argument counts (re-ranking input)
+        proposalArguments.forEach((proposalId, args) -> {
+            labelCounts.put(proposalId, ArgumentScorer.getLabelCounts(args, labels));
+        });
+
+        // Per-proposal graded relevance (evaluation input)
+        judgements.values().forEach(label -> {
+            int gain = getGain(ArgumentScorer.getLabelClass(label));
+            gains.merge(label.getProposalId(), gain, Math::max);
+        });
+    }
+
+    /**
+     * Evaluates a single parameter configuration over a set of queries.
+     *
+     * @param queries
+     * @param similarity
+     * @param lambda
+     * @param scorer
+     * @return
+     */
+    public EvaluationResult evaluate(List<String> queries, String similarity, double lambda, ArgumentScorer scorer) {
+        double ndcg = 0.0;
+        double map = 0.0;
+        double precision = 0.0;
+        int nQueries = 0;
+
+        for (String query : queries) {
+            QueryRun run = getQueryRun(query, similarity);
+
+            if (run.nRelevant > 0) {
+                Integer[] ranking = rank(run, lambda, scorer);
+                ndcg += getNDCG(run, ranking);
+                map += getAveragePrecision(run, ranking);
+                precision += getPrecision(run, ranking);
+                nQueries++;
+            }
+        }
+
+        if (nQueries > 0) {
+            ndcg /= nQueries;
+            map /= nQueries;
+            precision /= nQueries;
+        }
+
+        return new EvaluationResult(similarity, lambda, scorer, ndcg, map, precision, nQueries);
+    }
+
+    /**
+     * Evaluates all combinations of LAMBDA values and argument scorers in
+     * parallel. Results are sorted by nDCG (descending).
+     *
+     * @param queries
+     * @param similarity
+     * @param lambdas
+     * @param scorers
+     * @return
+     */
+    public List<EvaluationResult> sweep(List<String> queries, String similarity, double[] lambdas, List<ArgumentScorer> scorers) {
+        // Warm the similarity score cache
+        queries.parallelStream().forEach(query -> getQueryRun(query, similarity));
+
+        List<double[]> configs = new ArrayList<>();
+        for (int i = 0; i < scorers.size(); i++) {
+            for (double lambda : lambdas) {
+                configs.add(new double[]{lambda, i});
+            }
+        }
+
+        return configs.parallelStream()
+                .map(config -> evaluate(queries, similarity, config[0], scorers.get((int) config[1])))
+                .sorted(Comparator.comparingDouble(EvaluationResult::getNDCG).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     *
+     * @param run
+     * @param ranking
+     * @return
+     */
+    private double getAveragePrecision(QueryRun run, Integer[] ranking) {
+        double sum = 0.0;
+        int nFound = 0;
+
+        for (int i = 0; i < ranking.length; i++) {
+            if (run.gains[ranking[i]] > 0) {
+                nFound++;
+                sum += (double) nFound / (i + 1);
+            }
+        }
+
+        return sum / run.nRelevant;
+    }
+
+    /**
+     *
+     * @param labelClass
+     * @return
+     */
+    private int getGain(int labelClass) {
+        if (labelClass == ArgumentScorer.VERY_RELEVANT) {
+            return 2;
+        } else if (labelClass == ArgumentScorer.RELEVANT) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     *
+     * @param run
+     * @param ranking
+     * @return
+     */
+    private double getNDCG(QueryRun run, Integer[] ranking) {
+        double dcg = 0.0;
+        int n = Math.min(CUTOFF, ranking.length);
+
+        for (int i = 0; i < n; i++) {
+            dcg += (Math.pow(2, run.gains[ranking[i]]) - 1) / log2(i + 2);
+        }
+
+        return (run.idcg > 0 ? dcg / run.idcg : 0.0);
+    }
+
+    /**
+     *
+     * @param run
+     * @param ranking
+     * @return
+     */
+    private double getPrecision(QueryRun run, Integer[] ranking) {
+        int nFound = 0;
+        int n = Math.min(CUTOFF, ranking.length);
+
+        for (int i = 0; i < n; i++) {
+            if (run.gains[ranking[i]] > 0) {
+                nFound++;
+            }
+        }
+
+        return (double) nFound / CUTOFF;
+    }
+
+    /**
+     * Returns the cached similarity scores of a query, searching the index
+     * only on the first call.
+     *
+     * @param query
+     * @param similarity
+     * @return
+     */
+    private QueryRun getQueryRun(String query, String similarity) {
+        String key = (query + "|" + similarity).toLowerCase();
+        return runs.computeIfAbsent(key, k -> new QueryRun(retriever.getBaseScores(query, similarity)));
+    }
+
+    /**
+     *
+     * @param x
+     * @return
+     */
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    /**
+     * Re-ranks the hits of a query (same score combination as the
+     * InfoRetriever).
+     *
+     * @param run
+     * @param lambda
+     * @param scorer
+     * @return
+     */
+    private Integer[] rank(QueryRun run, double lambda, ArgumentScorer scorer) {
+        int n = run.ids.length;
+        double[] scores = new double[n];
+        Integer[] ranking = new Integer[n];
+
+        for (int i = 0; i < n; i++) {
+            double argumentativeScore = (run.counts[i] != null ? scorer.getScore(run.counts[i]) : 0.0);
+            scores[i] = lambda * run.scores[i] + (1 - lambda) * argumentativeScore;
+            ranking[i] = i;
+        }
+        Arrays.sort(ranking, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        return ranking;
+    }
+
+    /**
+     * Cached hits of a query, stored as parallel arrays.
+     */
+    private class QueryRun {
+
+        private final int[][] counts;
+        private final int[] gains;
+        private final double idcg;
+        private final int[] ids;
+        private final int nRelevant;
+        private final double[] scores;
+
+        QueryRun(Map<Integer, Double> baseScores) {
+            int n = baseScores.size();
+            int i = 0;
+            this.ids = new int[n];
+            this.scores = new double[n];
+            this.counts = new int[n][];
+            this.gains = new int[n];
+
+            for (Map.Entry<Integer, Double> entry : baseScores.entrySet()) {
+                int proposalId = entry.getKey();
+                ids[i] = proposalId;
+                scores[i] = entry.getValue();
+                counts[i] = labelCounts.get(proposalId);
+                gains[i] = RankingEvaluator.this.gains.getOrDefault(proposalId, 0);
+                i++;
+            }
+
+            // Ideal ranking
+            int[] sorted = gains.clone();
+            Arrays.sort(sorted);
+            double ideal = 0.0;
+            int relevant = 0;
+            for (int j = 0; j < n; j++) {
+                int gain = sorted[n - 1 - j];
+                if (j < CUTOFF) {
+                    ideal += (Math.pow(2, gain) - 1) / log2(j + 2);
+                }
+                if (gain > 0) {
+                    relevant++;
+                }
+            }
+            this.idcg = ideal;
+            this.nRelevant = relevant;
+        }
+
+    }
+
+}
@@ -122,7 +122,7 @@ public class AnnotationForm extends javax.swing.JDialog {
 
             // Save sentences variables
             this.sentArg = model.getFormatter().getArgumentByComment(comment, model.getProposalArguments(proposalId));
-            this.sentText = comment.getText();
+            this.sentText = model.getCommentText(comment);
             ArgumentLinker linker = null;
             if (this.sentArg != null) {
                 this.sentClaim = this.sentArg.claim.getText();
@@ -498,7 +498,11 @@ public class AnnotationForm extends javax.swing.JDialog {
             String relevance = this.cmbTopicalRelevance.getSelectedItem().toString();
             String quality = this.cmbRhetoricQuality.getSelectedItem().toString();
             saveArgument(argumentId, userId, commentId, parentId, this.sentText, this.sentClaim, this.sentPremise, category, subCategory, intent, relevance, quality);
-            this.setVisible(false);
+            if (this.result) {
+                this.setVisible(false);
+            } else {
+                JOptionPane.showMessageDialog(this, "Error! The argument could not be saved.", "Error dialog", JOptionPane.ERROR_MESSAGE);
+            }
         } else {
             JOptionPane.showMessageDialog(this, "Error! You must enter all the elements of the argument.", "Error dialog", JOptionPane.ERROR_MESSAGE);
         }
@@ -535,7 +539,7 @@ public class AnnotationForm extends javax.swing.JDialog {
         Sentence sClaim = new Sentence(claim);
         Sentence sPremise = new Sentence(premise);
         String mainVerb = (sentArg != null ? sentArg.getMainVerb() : "");
-        String syntacticTree = (sentArg != null ? sentArg.getSyntacticTree() : "");
+        String syntacticTree = (sentArg != null ? model.getArgumentSyntacticTree(sentArg) : "");
         ArgumentLinker linker = new ArgumentLinker(category.toUpperCase(), subCategory.toUpperCase(), intent.toLowerCase(), "");
         ArgumentPattern sentPattern = new ArgumentPattern("[manual]", 1);
 
@@ -53,9 +53,30 @@ public class ArgumentIRForm extends javax.swing.JFrame {
      * @param dataPath
      */
     public ArgumentIRForm(String language, String dataPath) {
+        this(language, dataPath, 0, 0, 0, "");
+    }
+
+    /**
+     * Creates new form ArgumentIRForm.
+     *
+     * @param language
+     * @param dataPath
+     * @param syncInterval seconds between argument synchronizations (0
+     * disables it)
+     * @param refreshInterval seconds between proposal and comment refreshes
+     * (0 disables it)
+     * @param snapshotTtl seconds during which the data snapshot is used
+     * instead of the databases (0 disables it)
+     * @param offlinePath folder of the corpus dump files used instead of the
+     * databases (empty to use the databases)
+     */
+    public ArgumentIRForm(String language, String dataPath, int syncInterval, int refreshInterval, int snapshotTtl, String offlinePath) {
         initComponents();
         this.doEvents = false;
-        this.model = new DataModel(language, dataPath, DECIMAL_FORMAT, DATE_FORMAT);
+        this.model = new DataModel(language, dataPath, DECIMAL_FORMAT, DATE_FORMAT, snapshotTtl, offlinePath);
+        this.model.startArgumentSync(syncInterval);
+        this.model.startCorpusSync(refreshInterval);
+        this.mItemReloadArguments.setEnabled(model.isOnline());
         this.setVisible(true);
         this.userName = getAnnotatorName();
         this.lblAnnotator.setText("Annotator: " + userName);
@@ -167,6 +188,7 @@ public class ArgumentIRForm extends javax.swing.JFrame {
         mItemClose = new javax.swing.JMenuItem();
         menuLabel = new javax.swing.JMenu();
         mItemSaveLabels = new javax.swing.JMenuItem();
+        mItemReloadArguments = new javax.swing.JMenuItem();
         menuHelp = new javax.swing.JMenu();
         mItemAbout = new javax.swing.JMenuItem();
 
@@ -263,6 +285,14 @@ public class ArgumentIRForm extends javax.swing.JFrame {
         });
         menuLabel.add(mItemSaveLabels);
 
+        mItemReloadArguments.setText("Reload Arguments");
+        mItemReloadArguments.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                mItemReloadArgumentsActionPerformed(evt);
+            }
+        });
+        menuLabel.add(mItemReloadArguments);
+
         menuBar.add(menuLabel);
 
         menuHelp.setText("Help");
@@ -447,6 +477,24 @@ public class ArgumentIRForm extends javax.swing.JFrame {
         }
     }//GEN-LAST:event_mItemSaveLabelsActionPerformed
 
+    /**
+     * Event: reload all the arguments from the databases and refresh the
+     * current results.
+     *
+     * @param evt
+     */
+    private void mItemReloadArgumentsActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_mItemReloadArgumentsActionPerformed
+        this.setCursor(java.awt.Cursor.getPredefinedCursor(java.awt.Cursor.WAIT_CURSOR));
+        boolean reloaded = model.reloadArguments();
+        this.setCursor(java.awt.Cursor.getDefaultCursor());
+
+        if (!reloaded) {
+            JOptionPane.showMessageDialog(this, "The arguments could not be reloaded.", "Reload Arguments", JOptionPane.WARNING_MESSAGE);
+        } else if (!this.txtQuery.getText().trim().isEmpty()) {
+            btnSearchActionPerformed(evt);
+        }
+    }//GEN-LAST:event_mItemReloadArgumentsActionPerformed
+
     /**
      *
      * @param evt
@@ -536,6 +584,7 @@ public class ArgumentIRForm extends javax.swing.JFrame {
     private javax.swing.JMenuItem mItemClose;
     private javax.swing.JMenuItem mItemExportHtml;
     private javax.swing.JMenuItem mItemExportText;
+    private javax.swing.JMenuItem mItemReloadArguments;
     private javax.swing.JMenuItem mItemSaveLabels;
     private javax.swing.JMenuBar menuBar;
     private javax.swing.JMenu menuFile;
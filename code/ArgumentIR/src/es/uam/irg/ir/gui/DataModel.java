@@ -20,25 +20,49 @@ package es.uam.irg.ir.gui;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.UpdateOptions;
 import es.uam.irg.decidemadrid.controversy.ControversyScore;
+import es.uam.irg.decidemadrid.db.ArgumentSync;
+import es.uam.irg.decidemadrid.db.CorpusSync;
 import es.uam.irg.decidemadrid.db.DMDBManager;
+import es.uam.irg.decidemadrid.db.DatabaseCorpusSource;
 import es.uam.irg.decidemadrid.db.MongoDbManager;
+import es.uam.irg.decidemadrid.db.TextCache;
 import es.uam.irg.decidemadrid.entities.DMComment;
+import es.uam.irg.decidemadrid.entities.DMCommentStore;
 import es.uam.irg.decidemadrid.entities.DMCommentTree;
+import es.uam.irg.decidemadrid.entities.DMDictionary;
 import es.uam.irg.decidemadrid.entities.DMProposal;
 import es.uam.irg.decidemadrid.entities.DMProposalSummary;
+import es.uam.irg.io.CorpusSnapshot;
+import es.uam.irg.io.CorpusSource;
+import es.uam.irg.io.FileCorpusSource;
 import es.uam.irg.io.IOManager;
+import es.uam.irg.ir.ArgumentScorer;
 import es.uam.irg.ir.InfoRetriever;
+import es.uam.irg.ir.eval.RankingEvaluator;
+import es.uam.irg.metrics.MetricsRegistry;
+import es.uam.irg.metrics.events.ArgumentSaveEvent;
+import es.uam.irg.metrics.events.LabelsSaveEvent;
 import es.uam.irg.nlp.am.arguments.Argument;
 import es.uam.irg.nlp.am.arguments.ArgumentLabel;
-import es.uam.irg.utils.FunctionUtils;
+import es.uam.irg.utils.EventLogger;
+import es.uam.irg.utils.IntDoubleMap;
+import es.uam.irg.utils.IntObjectMap;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
 
 /**
  * Argument IR data model class.
@@ -49,26 +73,38 @@ public class DataModel {
     private static final String[] CSV_FILE_HEADER = {"proposal_id", "argument_id", "relevance", "quality", "timestamp", "username"};
     private static final int MAX_RECORDS_PER_PAGE = 10;
     private static final int MAX_TREE_LEVEL = 3;
+    private static final int N_LOADERS = 5;
+    private static final String SNAPSHOT_FILENAME = "corpus.snapshot";
+    private static final int TEXT_CACHE_SIZE = 10000;
 
     // Class objects
     private final Map<String, List<Integer>> cache;
+    private final TextCache commentTexts;
+    private final DMDictionary dictionary;
     private final String dateFormat;
     private final ReportFormatter formatter;
     private final String labelsFilepath;
     private final String lang;
     private final Map<String, Object> mdbSetup;
+    private final MetricsRegistry metrics;
     private final Map<String, Object> msqlSetup;
+    private final File snapshotFile;
+    private final int snapshotTtl;
+    private final CorpusSource source;
 
     // Class data variables
-    private Map<Integer, Double> controversyScores;
+    private IntDoubleMap argumentScores;
+    private ArgumentSync argumentSync;
+    private IntDoubleMap controversyScores;
+    private CorpusSync corpusSync;
     private boolean isDirty;
     private int nRows;
-    private Map<Integer, List<Argument>> proposalArguments;
-    private Map<Integer, List<DMCommentTree>> proposalCommentTrees;
-    private Map<Integer, DMComment> proposalComments;
+    private IntObjectMap<List<Argument>> proposalArguments;
+    private IntObjectMap<List<DMCommentTree>> proposalCommentTrees;
+    private DMCommentStore proposalComments;
     private Map<String, ArgumentLabel> proposalLabels;
-    private Map<Integer, DMProposalSummary> proposalSummaries;
-    private Map<Integer, DMProposal> proposals;
+    private IntObjectMap<DMProposalSummary> proposalSummaries;
+    private IntObjectMap<DMProposal> proposals;
     private InfoRetriever retriever;
     private Map<String, List<String>> taxonomy;
 
@@ -81,15 +117,41 @@ public class DataModel {
      * @param dateFormat
      */
     public DataModel(String lang, String dataPath, String decimalFormat, String dateFormat) {
+        this(lang, dataPath, decimalFormat, dateFormat, 0, "");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param lang
+     * @param dataPath
+     * @param decimalFormat
+     * @param dateFormat
+     * @param snapshotTtl seconds during which the snapshot of the loaded data
+     * is used instead of the databases (0 disables the snapshot)
+     * @param offlinePath folder of the corpus dump files used instead of the
+     * databases (empty to use the databases)
+     */
+    public DataModel(String lang, String dataPath, String decimalFormat, String dateFormat, int snapshotTtl, String offlinePath) {
         this.cache = new HashMap<>();
         this.lang = lang;
         this.labelsFilepath = dataPath + "/results/labels.csv";
+        this.snapshotFile = new File(dataPath, SNAPSHOT_FILENAME);
+        this.snapshotTtl = snapshotTtl;
         this.dateFormat = dateFormat;
         this.formatter = new ReportFormatter(decimalFormat, dateFormat);
-        this.mdbSetup = IOManager.getDatabaseConfiguration(IOManager.MONGO_DB);
-        this.msqlSetup = IOManager.getDatabaseConfiguration(IOManager.MYSQL_DB);
+        this.metrics = MetricsRegistry.getInstance();
         this.isDirty = false;
         this.nRows = 0;
+        this.argumentScores = null;
+        this.dictionary = DMDictionary.getInstance();
+
+        // Corpus source (the database setups are not read in offline mode)
+        boolean offline = (offlinePath != null && !offlinePath.isEmpty());
+        this.mdbSetup = (offline ? null : IOManager.getDatabaseConfiguration(IOManager.MONGO_DB));
+        this.msqlSetup = (offline ? null : IOManager.getDatabaseConfiguration(IOManager.MYSQL_DB));
+        this.source = (offline ? new FileCorpusSource(offlinePath) : new DatabaseCorpusSource(msqlSetup, mdbSetup));
+        this.commentTexts = new TextCache(TEXT_CACHE_SIZE, source::loadCommentTexts);
 
         // Data loading and IR index creation
         loadData();
@@ -119,6 +181,41 @@ public class DataModel {
         return this.proposalComments.get(id);
     }
 
+    /**
+     * Returns the text of a comment, fetching it from the database if it was
+     * not loaded with the comment.
+     *
+     * @param comment
+     * @return
+     */
+    public String getCommentText(DMComment comment) {
+        String text = comment.getText();
+        if (text == null) {
+            text = commentTexts.getText(comment.getId());
+        }
+        return (text != null ? text : "");
+    }
+
+    /**
+     * Returns the syntactic tree of an argument, fetching it from the source
+     * the first time (it is not loaded with the arguments).
+     *
+     * @param arg
+     * @return
+     */
+    public String getArgumentSyntacticTree(Argument arg) {
+        if (arg.getSyntacticTree() == null) {
+            String syntacticTree = null;
+            try {
+                syntacticTree = source.loadArgumentSyntacticTree(arg.getId());
+            } catch (Exception ex) {
+                EventLogger.error("Error loading the syntactic tree", ex);
+            }
+            arg.setSyntacticTree(syntacticTree != null ? syntacticTree : "");
+        }
+        return arg.getSyntacticTree();
+    }
+
     /**
      *
      * @return
@@ -135,6 +232,66 @@ public class DataModel {
         return 1 + (this.nRows / MAX_RECORDS_PER_PAGE);
     }
 
+    /**
+     * Applies the arguments changed in the database (by other annotators or
+     * by the miner) to the model.
+     *
+     * @param changes
+     */
+    public void applyArgumentChanges(List<Argument> changes) {
+        changes.forEach(this::mergeArgument);
+        EventLogger.info(" - Synchronized arguments", "count", changes.size());
+    }
+
+    /**
+     * Applies the proposals and comments added to the database to the model:
+     * the comment trees of the affected proposals are rebuilt and the new
+     * proposals are added to the index, without reloading the rest.
+     *
+     * @param delta
+     */
+    public void applyCorpusChanges(CorpusSync.Delta delta) {
+        proposals.putAll(delta.getProposals());
+        proposalSummaries.putAll(delta.getSummaries());
+        delta.getComments().values().forEach(proposalComments::add);
+        proposalComments.compact();
+
+        // Comment trees
+        Map<Integer, List<DMComment>> treeComments = new HashMap<>();
+        for (DMComment comment : delta.getComments().values()) {
+            treeComments.computeIfAbsent(comment.getProposalId(), proposalId -> {
+                List<DMComment> comments = new ArrayList<>();
+                collectTreeComments(proposalCommentTrees.get(proposalId), comments);
+                return comments;
+            }).add(comment);
+        }
+        List<DMComment> comments = new ArrayList<>();
+        treeComments.values().forEach(comments::addAll);
+        proposalCommentTrees.putAll(DMDBManager.createCommentTrees(comments));
+
+        // Index and cached results
+        if (!delta.getProposals().isEmpty()) {
+            retriever.updateDocumentIndex(delta.getProposals(), proposalSummaries);
+        }
+        cache.clear();
+        EventLogger.info(" - Synchronized corpus", "proposals", delta.getProposals().size(), "comments", delta.getComments().size());
+    }
+
+    /**
+     * Creates an offline ranking evaluator over the loaded corpus. The
+     * re-ranking function uses the current argument labels, as the search
+     * does, while the relevance judgements are the labels saved in
+     * labels.csv. So the unsaved labels of this session can change the
+     * rankings being evaluated, but never the judgements they are compared
+     * against.
+     *
+     * @return
+     */
+    public RankingEvaluator createRankingEvaluator() {
+        Map<String, ArgumentLabel> judgements = IOManager.readArgumentLabelList(labelsFilepath);
+        return new RankingEvaluator(retriever, proposalArguments, proposalLabels, judgements);
+    }
+
     /**
      *
      * @param id
@@ -171,18 +328,26 @@ public class DataModel {
 
         } else {
             // Elapsed time variables
+            long searchStart = System.nanoTime();
             long start, finish;
             int timeElapsed1, timeElapsed2;
 
             // 1. Data querying, reranking and pagination
             start = System.nanoTime();
             List<Integer> docList = retrieveInformation(query, reRankBy, similarity);
+            long pageStart = System.nanoTime();
             docList = filterDataByPage(docList, nPage);
             finish = System.nanoTime();
+            metrics.histogram(MetricsRegistry.PAGINATION).record(finish - pageStart);
             timeElapsed1 = (int) ((finish - start) / 1000000);
 
-            // 2. Create user report
+            // 2. Create user report (the comment texts of the page are fetched in one batch)
             start = System.nanoTime();
+            List<Integer> textIds = new ArrayList<>();
+            for (int docId : docList) {
+                collectMissingTexts(proposalCommentTrees.get(docId), textIds);
+            }
+            Map<Integer, String> texts = commentTexts.getTexts(textIds);
             StringBuilder body = new StringBuilder();
             for (int i = 0; i < docList.size(); i++) {
                 int docId = docList.get(i);
@@ -191,17 +356,19 @@ public class DataModel {
                 DMProposalSummary summary = proposalSummaries.get(docId);
                 List<DMCommentTree> commentTrees = proposalCommentTrees.get(docId);
                 List<Argument> arguments = proposalArguments.get(docId);
-                double controversy = (controversyScores.containsKey(docId) ? controversyScores.get(docId) : 0.0);
+                double controversy = controversyScores.getOrDefault(docId, 0.0);
 
-                String report = this.formatter.getProposalInfoReport(ix, proposal, summary, commentTrees, proposalComments, arguments, controversy, proposalLabels);
+                String report = this.formatter.getProposalInfoReport(ix, proposal, summary, commentTrees, proposalComments, texts, arguments, controversy, proposalLabels);
                 body.append(report);
             }
             finish = System.nanoTime();
+            metrics.histogram(MetricsRegistry.RENDER).record(finish - start);
             timeElapsed2 = (int) ((finish - start) / 1000000);
 
             // Update final report
             result = this.formatter.getProposalsReport(body.toString(), nRows, timeElapsed1, timeElapsed2);
-            FunctionUtils.printWithDatestamp(">> The results report has been created");
+            metrics.histogram(MetricsRegistry.SEARCH_TOTAL).recordSince(searchStart);
+            EventLogger.info(">> The results report has been created");
         }
 
         return result;
@@ -224,6 +391,16 @@ public class DataModel {
         return isDirty;
     }
 
+    /**
+     * Returns true if the corpus is read from the databases (false in offline
+     * mode).
+     *
+     * @return
+     */
+    public boolean isOnline() {
+        return source.isOnline();
+    }
+
     /**
      *
      * @param arg
@@ -234,26 +411,120 @@ public class DataModel {
     public boolean saveArgument(Argument arg, String relevance, String quality) {
         boolean result = false;
 
-        // Insert/update argument
-        if (arg.isValid()) {
-            MongoDbManager mngManager = new MongoDbManager(mdbSetup);
-            mngManager.upsertDocument(arg.getDocument(), Filters.eq("argumentID", arg.getId()), new UpdateOptions().upsert(true));
-            proposalArguments = mngManager.selectProposalArguments(MAX_TREE_LEVEL);
+        // Insert/update argument (in offline mode, only the model and the labels are updated)
+        if (arg.isValid() && !source.isOnline()) {
             updateModelLabel(arg.getId(), relevance, quality);
+            mergeArgument(arg);
             result = true;
-            FunctionUtils.printWithDatestamp(" - Upserted argument: " + arg.getId());
+
+        } else if (arg.isValid()) {
+            ArgumentSaveEvent event = new ArgumentSaveEvent();
+            event.begin();
+            MongoDbManager mngManager = new MongoDbManager(mdbSetup);
+            Document doc = arg.getDocument();
+            event.success = mngManager.upsertDocument(doc, Filters.eq("argumentID", arg.getId()), new UpdateOptions().upsert(true));
+            event.end();
+            if (event.shouldCommit()) {
+                event.argumentId = arg.getId();
+                event.proposalId = arg.getProposalId();
+                event.bytes = new RawBsonDocument(doc, new DocumentCodec()).getByteBuffer().remaining();
+                event.commit();
+            }
+            if (event.success) {
+                updateModelLabel(arg.getId(), relevance, quality);
+                mergeArgument(arg);
+                result = true;
+                EventLogger.info(" - Upserted argument", "id", arg.getId());
+            } else {
+                EventLogger.warn(" - Argument not upserted", "id", arg.getId());
+            }
         }
 
         return result;
     }
 
+    /**
+     * Starts the background synchronization of the arguments changed in the
+     * database. The changes are applied in the event dispatch thread.
+     *
+     * @param periodSeconds
+     */
+    public void startArgumentSync(int periodSeconds) {
+        if (argumentSync != null && periodSeconds > 0) {
+            argumentSync.start(periodSeconds);
+        }
+    }
+
+    /**
+     * Starts the background refresh of the proposals and comments added to
+     * the database. The changes are applied in the event dispatch thread.
+     *
+     * @param periodSeconds
+     */
+    public void startCorpusSync(int periodSeconds) {
+        if (corpusSync != null && periodSeconds > 0) {
+            corpusSync.start(periodSeconds);
+        }
+    }
+
+    /**
+     * Stops the background synchronization of the arguments.
+     */
+    public void stopArgumentSync() {
+        if (argumentSync != null) {
+            argumentSync.stop();
+        }
+    }
+
+    /**
+     * Stops the background refresh of the proposals and comments.
+     */
+    public void stopCorpusSync() {
+        if (corpusSync != null) {
+            corpusSync.stop();
+        }
+    }
+
+    /**
+     * Explicitly reloads all the arguments from the databases (the annotations
+     * made in this session are already stored there). In offline mode the
+     * annotations only live in the model, so nothing is reloaded.
+     *
+     * @return
+     */
+    public boolean reloadArguments() {
+        if (!source.isOnline()) {
+            return false;
+        }
+        try {
+            proposalArguments = IntObjectMap.of(source.loadProposalArguments(MAX_TREE_LEVEL));
+            argumentScores = null;
+            invalidateCache("ARGUMENTS");
+            EventLogger.info(" - Proposals with arguments reloaded", "count", proposalArguments.size());
+            return true;
+        } catch (Exception ex) {
+            EventLogger.error("Error reloading arguments", ex);
+            return false;
+        }
+    }
+
     /**
      *
      * @param userName
      * @return
      */
     public boolean saveLabelsToFile(String userName) {
+        LabelsSaveEvent event = new LabelsSaveEvent();
+        event.begin();
         boolean result = IOManager.saveArgumentLabelList(labelsFilepath, CSV_FILE_HEADER, proposalLabels, userName, true);
+        event.end();
+        if (event.shouldCommit()) {
+            event.filepath = labelsFilepath;
+            event.rows = proposalLabels.size();
+            event.bytes = new File(labelsFilepath).length();
+            event.success = result;
+            event.commit();
+        }
         isDirty = !result;
         return result;
     }
@@ -269,16 +540,67 @@ public class DataModel {
         ArgumentLabel label = new ArgumentLabel(argumentId, relevance, quality, timeStamp);
         proposalLabels.put(argumentId, label);
         isDirty = true;
-        FunctionUtils.printWithDatestamp(" - Argument '" + argumentId + "' has been annotated as '" + relevance + "' and '" + quality + "'");
+
+        // Update the argumentative score of the affected proposal (the
+        // argument ID starts with the proposal ID)
+        if (argumentScores != null) {
+            try {
+                int proposalId = Integer.parseInt(argumentId.substring(0, argumentId.indexOf('-')));
+                if (proposalArguments.containsKey(proposalId)) {
+                    argumentScores.put(proposalId, ArgumentScorer.DEFAULT.getScore(proposalArguments.get(proposalId), proposalLabels));
+                }
+            } catch (NumberFormatException | StringIndexOutOfBoundsException ex) {
+                argumentScores = null;
+            }
+        }
+        invalidateCache("ARGUMENTS");
+        EventLogger.info(" - Argument annotated", "id", argumentId, "relevance", relevance, "quality", quality);
+    }
+
+    /**
+     * Adds the ids of the comments of the trees whose text was not loaded.
+     *
+     * @param trees
+     * @param ids
+     */
+    private void collectMissingTexts(List<DMCommentTree> trees, List<Integer> ids) {
+        if (trees != null) {
+            for (DMCommentTree tree : trees) {
+                if (proposalComments.containsKey(tree.getId()) && !proposalComments.hasText(tree.getId())) {
+                    ids.add(tree.getId());
+                }
+                collectMissingTexts(tree.getChildren(), ids);
+            }
+        }
+    }
+
+    /**
+     * Adds the comments of the trees (and of their sub-trees).
+     *
+     * @param trees
+     * @param comments
+     */
+    private void collectTreeComments(List<DMCommentTree> trees, List<DMComment> comments) {
+        if (trees != null) {
+            for (DMCommentTree tree : trees) {
+                DMComment comment = proposalComments.get(tree.getId());
+                if (comment != null) {
+                    comments.add(comment);
+                }
+                collectTreeComments(tree.getChildren(), comments);
+            }
+        }
     }
 
     /**
      * Creates a full-text index (with Apache Lucene) on the documents.
      */
     private void createDocumentIndex() {
-        FunctionUtils.printWithDatestamp(">> Creating Lucene full-text index");
+        EventLogger.info(">> Creating Lucene full-text index");
         this.retriever = new InfoRetriever();
         this.retriever.createDocumentIndex(proposals, proposalSummaries);
+        this.metrics.gauge(MetricsRegistry.INDEX_DOCUMENTS, retriever::getIndexSize);
+        this.metrics.gauge(MetricsRegistry.INDEX_BYTES, retriever::getIndexBytes);
     }
 
     /**
@@ -300,120 +622,220 @@ public class DataModel {
      * Logarithm of the weighted sum of the topical relevance of arguments in a
      * document.
      *
-     * @param id
      * @return
      */
-    private Map<Integer, Double> getArgumentativeScores() {
-        Map<Integer, Double> scores = new HashMap<>();
-        int totalArgs = 0;
-
-        for (int docId : proposalArguments.keySet()) {
-            List<Argument> args = proposalArguments.get(docId);
-            totalArgs += args.size();
-            double score = 0.0;
-
-            for (Argument arg : args) {
-                ArgumentLabel label = getArgumentLabel(arg.getId());
-
-                if (label != null) {
-                    String relevance = label.getRelevance().toUpperCase();
-
-                    if (relevance.equals("VERY_RELEVANT")) {
-                        score += 3.0;
-                    } else if (relevance.equals("RELEVANT")) {
-                        score += 2.0;
-                    } else if (relevance.equals("NOT_RELEVANT")) {
-                        score += 1.0;
-                    } else if (relevance.equals("SPAM")) {
-                        score += -2;
-                    }
-                } else {
-                    score += 0.5;
-                }
-            }
+    private IntDoubleMap getArgumentativeScores() {
+        if (argumentScores == null) {
+            argumentScores = ArgumentScorer.DEFAULT.getArgumentativeScores(proposalArguments, proposalLabels);
+            int totalArgs = 0;
 
-            // Normalization
-            if (score <= 1) {
-                score = 0.150515;
-            } else {
-                score = Math.log(score);
+            for (List<Argument> args : proposalArguments.values()) {
+                totalArgs += args.size();
             }
 
-            scores.put(docId, score);
+            EventLogger.info(" - Retrieved arguments", "count", totalArgs);
         }
-
-        FunctionUtils.printWithDatestamp(" - Number of retrieved arguments: " + totalArgs);
-        return scores;
+        return argumentScores;
     }
 
     /**
      *
-     * @param proposalIds
+     * @param proposals
      * @param controversyScores
      * @return
      */
-    private Map<Integer, Double> getControversyScores(Set<Integer> proposalIds, Map<Integer, ControversyScore> controversyScores) {
-        Map<Integer, Double> scores = new HashMap<>();
+    private IntDoubleMap getControversyScores(IntObjectMap<DMProposal> proposals, Map<Integer, ControversyScore> controversyScores) {
+        IntDoubleMap scores = new IntDoubleMap(controversyScores.size());
 
-        controversyScores.keySet().forEach(docId -> {
-            if (proposalIds.contains(docId)) {
-                double score = controversyScores.get(docId).getValue();
-                scores.put(docId, score);
+        for (ControversyScore score : controversyScores.values()) {
+            if (proposals.containsKey(score.getId())) {
+                scores.put(score.getId(), score.getValue());
             }
-        });
+        }
 
         return scores;
     }
 
     /**
-     * Loads all data (proposals, comments, arguments, labels).
+     * Removes the cached results of a re-ranking method.
+     *
+     * @param reRankBy
+     */
+    private void invalidateCache(String reRankBy) {
+        String token = "|" + reRankBy.toLowerCase() + "|";
+        cache.keySet().removeIf(key -> key.contains(token));
+    }
+
+    /**
+     * Loads all data (proposals, comments, arguments, controversy) from the
+     * source. The parts are loaded in parallel.
      */
     private void loadData() {
-        try {
-            FunctionUtils.printWithDatestamp(">> Creating connections");
+        if (loadSnapshot()) {
+            return;
+        }
 
-            // Connecting to databases and fetching data
-            DMDBManager dbManager = new DMDBManager(msqlSetup);
-            MongoDbManager mngManager = new MongoDbManager(mdbSetup);
+        EventLogger.info(">> Loading data", "source", (source.isOnline() ? "databases" : "files"));
+        ExecutorService executor = Executors.newFixedThreadPool(N_LOADERS, r -> {
+            Thread thread = new Thread(r, "corpus-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // The argument sync mark is taken first, so no change is missed
+            if (source.isOnline()) {
+                argumentSync = new ArgumentSync(() -> new MongoDbManager(mdbSetup), changes -> SwingUtilities.invokeLater(() -> applyArgumentChanges(changes)));
+                argumentSync.initWatermark();
+            }
 
-            FunctionUtils.printWithDatestamp(">> Loading data");
+            Future<Map<Integer, DMProposal>> proposalsTask = executor.submit(source::loadProposals);
+            Future<Map<Integer, DMProposalSummary>> summariesTask = executor.submit(() -> source.loadProposalSummaries(dictionary));
+            Future<Map<Integer, DMComment>> commentsTask = executor.submit(source::loadComments);
+            Future<Map<Integer, List<Argument>>> argumentsTask = executor.submit(() -> source.loadProposalArguments(MAX_TREE_LEVEL));
+            Future<Map<Integer, ControversyScore>> controversyTask = executor.submit(source::loadControversyScores);
 
             // Get proposals
-            proposals = dbManager.selectProposals();
-            FunctionUtils.printWithDatestamp(" - Number of proposals: " + proposals.size());
+            proposals = IntObjectMap.of(proposalsTask.get());
+            EventLogger.info(" - Proposals loaded", "count", proposals.size());
 
             // Get proposal summaries
-            proposalSummaries = dbManager.selectProposalSummaries();
-            FunctionUtils.printWithDatestamp(" - Number of proposal summaries: " + proposalSummaries.size());
+            proposalSummaries = IntObjectMap.of(summariesTask.get());
+            EventLogger.info(" - Proposal summaries loaded", "count", proposalSummaries.size());
 
             // Get proposal comments
-            proposalComments = dbManager.selectComments();
-            FunctionUtils.printWithDatestamp(" - Number of comments: " + proposalComments.size());
+            proposalComments = DMCommentStore.of(commentsTask.get());
+            EventLogger.info(" - Comments loaded", "count", proposalComments.size());
 
-            // Get comments trees
-            proposalCommentTrees = dbManager.selectCommentTrees();
-            FunctionUtils.printWithDatestamp(" - Number of comment trees: " + proposalCommentTrees.size());
+            // Get comments trees (from the loaded comments)
+            proposalCommentTrees = DMDBManager.createCommentTrees(proposalComments.values());
+            EventLogger.info(" - Comment trees loaded", "count", proposalCommentTrees.size());
 
             // Get arguments data
-            proposalArguments = mngManager.selectProposalArguments(MAX_TREE_LEVEL);
-            FunctionUtils.printWithDatestamp(" - Number of proposals with arguments: " + proposalArguments.size());
+            proposalArguments = IntObjectMap.of(argumentsTask.get());
+            EventLogger.info(" - Proposals with arguments loaded", "count", proposalArguments.size());
 
             // Get proposal controversy scores
-            controversyScores = getControversyScores(proposals.keySet(), dbManager.selectProposalControversy());
-            FunctionUtils.printWithDatestamp(" - Number of controversy scores: " + controversyScores.size());
+            controversyScores = getControversyScores(proposals, controversyTask.get());
+            EventLogger.info(" - Controversy scores loaded", "count", controversyScores.size());
+
+            // New proposals and comments are fetched after the greatest loaded ids
+            if (source.isOnline()) {
+                corpusSync = new CorpusSync(msqlSetup, dictionary, delta -> SwingUtilities.invokeLater(() -> applyCorpusChanges(delta)));
+                corpusSync.initWatermarks(proposals.keySet(), proposalComments.keySet());
+            }
 
+            saveSnapshot();
+
+        } catch (ExecutionException ex) {
+            EventLogger.error("Error loading data", ex.getCause());
         } catch (Exception ex) {
-            Logger.getLogger(InfoRetriever.class.getName()).log(Level.SEVERE, null, ex);
+            EventLogger.error("Error loading data", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads all data from the snapshot, if it is fresher than the TTL (no
+     * database is queried). The snapshot is not used in offline mode.
+     *
+     * @return
+     */
+    private boolean loadSnapshot() {
+        if (snapshotTtl <= 0 || !source.isOnline()) {
+            return false;
+        }
+
+        EventLogger.info(">> Loading data snapshot", "file", snapshotFile.getName());
+        CorpusSnapshot snapshot = CorpusSnapshot.read(snapshotFile, snapshotTtl, dictionary);
+        if (snapshot == null) {
+            return false;
+        }
+
+        proposals = IntObjectMap.of(snapshot.getProposals());
+        proposalSummaries = IntObjectMap.of(snapshot.getSummaries());
+        proposalComments = DMCommentStore.of(snapshot.getComments());
+        proposalCommentTrees = DMDBManager.createCommentTrees(proposalComments.values());
+        proposalArguments = IntObjectMap.of(snapshot.getProposalArguments());
+        controversyScores = IntDoubleMap.of(snapshot.getControversyScores());
+        EventLogger.info(" - Snapshot loaded", "proposals", proposals.size(), "comments", proposalComments.size(), "created", snapshot.getCreated());
+
+        // The changes made after the snapshot are fetched by the synchronizations
+        corpusSync = new CorpusSync(msqlSetup, dictionary, delta -> SwingUtilities.invokeLater(() -> applyCorpusChanges(delta)));
+        corpusSync.initWatermarks(proposals.keySet(), proposalComments.keySet());
+        argumentSync = new ArgumentSync(() -> new MongoDbManager(mdbSetup), changes -> SwingUtilities.invokeLater(() -> applyArgumentChanges(changes)));
+        if (snapshot.getArgumentWatermark() != null) {
+            argumentSync.setWatermark(snapshot.getArgumentWatermark());
+        }
+
+        return true;
+    }
+
+    /**
+     * Saves the loaded data to the snapshot (if enabled).
+     */
+    private void saveSnapshot() {
+        if (snapshotTtl > 0 && source.isOnline()) {
+            try {
+                CorpusSnapshot snapshot = new CorpusSnapshot(proposals, proposalSummaries, proposalComments, proposalArguments, controversyScores, argumentSync.getWatermark());
+                snapshot.write(snapshotFile, dictionary);
+                EventLogger.info(" - Snapshot saved", "file", snapshotFile.getName(), "bytes", snapshotFile.length());
+            } catch (IOException ex) {
+                EventLogger.error("Error saving the snapshot", ex);
+            }
+        }
+    }
+
+    /**
+     * Merges a saved argument into the model (replacing the previous version
+     * of the argument, if any) and updates the argumentative score of its
+     * proposal.
+     *
+     * @param arg
+     */
+    private void mergeArgument(Argument arg) {
+        int proposalId = arg.getProposalId();
+        List<Argument> args = proposalArguments.computeIfAbsent(proposalId, k -> new ArrayList<>());
+        boolean keep = (arg.getTreeLevel() <= MAX_TREE_LEVEL);
+        int ix = -1;
+
+        for (int i = 0; i < args.size() && ix < 0; i++) {
+            if (args.get(i).getId().equals(arg.getId())) {
+                ix = i;
+            }
+        }
+
+        if (ix >= 0) {
+            if (keep) {
+                args.set(ix, arg);
+            } else {
+                args.remove(ix);
+            }
+        } else if (keep) {
+            args.add(arg);
+        }
+
+        if (args.isEmpty()) {
+            proposalArguments.remove(proposalId);
+        }
+        if (argumentScores != null) {
+            if (args.isEmpty()) {
+                argumentScores.remove(proposalId);
+            } else {
+                argumentScores.put(proposalId, ArgumentScorer.DEFAULT.getScore(args, proposalLabels));
+            }
         }
+        invalidateCache("ARGUMENTS");
     }
 
     /**
      *
      */
     private void loadLabels() {
-        FunctionUtils.printWithDatestamp(">> Loading argument labels");
+        EventLogger.info(">> Loading argument labels");
         proposalLabels = IOManager.readArgumentLabelList(labelsFilepath);
-        FunctionUtils.printWithDatestamp(" - Number of argument labels: " + proposalLabels.size());
+        EventLogger.info(" - Argument labels loaded", "count", proposalLabels.size());
     }
 
     /**
@@ -449,11 +871,13 @@ public class DataModel {
 
         if (cache.containsKey(key)) {
             docList = cache.get(key);
-            FunctionUtils.printWithDatestamp(">> Loaded " + docList.size() + " hits");
+            metrics.counter(MetricsRegistry.CACHE_HITS).increment();
+            EventLogger.info(">> Loaded from cache", "hits", docList.size());
 
         } else {
             // Module 5 & 6
-            FunctionUtils.printWithDatestamp(">> Data reranked by: " + reRankBy);
+            metrics.counter(MetricsRegistry.CACHE_MISSES).increment();
+            EventLogger.info(">> Searching", "query", query, "rerank", reRankBy, "similarity", similarity);
 
             reRankBy = reRankBy.toUpperCase();
             if (reRankBy.equals("NOTHING")) {
@@ -462,7 +886,9 @@ public class DataModel {
             } else {
                 Map<Integer, Double> scores = new HashMap<>();
                 if (reRankBy.equals("ARGUMENTS")) {
+                    long start = System.nanoTime();
                     scores = getArgumentativeScores();
+                    metrics.histogram(MetricsRegistry.ARGUMENT_LOOKUP).recordSince(start);
 
                 } else if (reRankBy.equals("CONTROVERSY")) {
                     scores = controversyScores;
@@ -470,7 +896,7 @@ public class DataModel {
 
                 docList = this.retriever.retrieveInformation(query, similarity, scores);
             }
-            FunctionUtils.printWithDatestamp(">> Found " + docList.size() + " hits");
+            EventLogger.info(">> Found", "hits", docList.size());
             cache.put(key, docList);
         }
 
@@ -102,11 +102,12 @@ public class ReportFormatter {
      *
      * @param tree
      * @param comments
+     * @param commentTexts texts of the comments that are not loaded with them
      * @param arguments
      * @param labels
      * @return
      */
-    public String getCommentsInfoReport(DMCommentTree tree, Map<Integer, DMComment> comments, List<Argument> arguments, Map<String, ArgumentLabel> labels) {
+    public String getCommentsInfoReport(DMCommentTree tree, Map<Integer, DMComment> comments, Map<Integer, String> commentTexts, List<Argument> arguments, Map<String, ArgumentLabel> labels) {
         String report = "";
 
         if (tree != null) {
@@ -114,7 +115,7 @@ public class ReportFormatter {
             int nodeId = tree.getId();
             int leftPadding = tree.getLevel() * 15;
             DMComment currNode = comments.get(nodeId);
-            String commentBody = currNode.getText();
+            String commentBody = (currNode.getText() != null ? currNode.getText() : commentTexts.getOrDefault(nodeId, ""));
             Argument arg = getArgumentByComment(currNode, arguments);
             String btAnnotate = getAnnotationButton("COMMENT", nodeId);
 
@@ -127,7 +128,7 @@ public class ReportFormatter {
             report = report.replace("$TEXT$", btAnnotate + " " + highlightArgument(commentBody, arg));
 
             for (DMCommentTree node : tree.getChildren()) {
-                report += getCommentsInfoReport(node, comments, arguments, labels);
+                report += getCommentsInfoReport(node, comments, commentTexts, arguments, labels);
             }
         }
 
@@ -150,13 +151,14 @@ public class ReportFormatter {
      * @param summary
      * @param commentTrees
      * @param comments
+     * @param commentTexts texts of the comments that are not loaded with them
      * @param arguments
      * @param controversy
      * @param labels
      * @return
      */
     public String getProposalInfoReport(int ix, DMProposal proposal, DMProposalSummary summary, List<DMCommentTree> commentTrees,
-            Map<Integer, DMComment> comments, List<Argument> arguments, Double controversy, Map<String, ArgumentLabel> labels) {
+            Map<Integer, DMComment> comments, Map<Integer, String> commentTexts, List<Argument> arguments, Double controversy, Map<String, ArgumentLabel> labels) {
         String report = reports.get("PROPOSAL_INFO");
         StringBuilder body = new StringBuilder();
         Argument arg = getArgumentByProposal(proposal, arguments);
@@ -181,7 +183,7 @@ public class ReportFormatter {
         if (commentTrees != null) {
             String commentReport;
             for (DMCommentTree tree : commentTrees) {
-                commentReport = getCommentsInfoReport(tree, comments, arguments, labels);
+                commentReport = getCommentsInfoReport(tree, comments, commentTexts, arguments, labels);
                 body.append(commentReport);
             }
         }
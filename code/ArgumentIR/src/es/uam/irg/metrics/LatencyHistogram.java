@@ -0,0 +1,191 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets. Values (in
+ * nanoseconds) are grouped by power of two, and each power of two is split
+ * into SUB_BUCKETS linear sub-buckets, so the relative error of any reported
+ * percentile is bounded by 1 / SUB_BUCKETS (~3%).
+ */
+public class LatencyHistogram {
+
+    // Class constants
+    private static final int MAX_EXPONENT = 40;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int N_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // Class members
+    private final AtomicLongArray counts;
+    private final LongAccumulator max;
+    private final String name;
+    private final LongAdder sum;
+    private final LongAdder total;
+
+    /**
+     * Constructor.
+     *
+     * @param name
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray(N_BUCKETS);
+        this.max = new LongAccumulator(Math::max, 0);
+        this.sum = new LongAdder();
+        this.total = new LongAdder();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public double getMean() {
+        long n = total.sum();
+        return (n > 0 ? (double) sum.sum() / n : 0.0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value (in nanoseconds) at the given percentile (0-100).
+     *
+     * @param percentile
+     * @return
+     */
+    public long getPercentile(double percentile) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long accum = 0;
+        for (int i = 0; i < N_BUCKETS; i++) {
+            accum += counts.get(i);
+            if (accum >= target) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Records a latency value in nanoseconds.
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(getBucketIndex(nanos));
+        max.accumulate(nanos);
+        sum.add(nanos);
+        total.increment();
+    }
+
+    /**
+     * Records the time elapsed since the given System.nanoTime() value.
+     *
+     * @param startNanos
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Clears the histogram.
+     */
+    public void reset() {
+        for (int i = 0; i < N_BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.reset();
+        sum.reset();
+        total.reset();
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return N_BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     *
+     * @param index
+     * @return
+     */
+    private static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
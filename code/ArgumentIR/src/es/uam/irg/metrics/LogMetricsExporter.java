@@ -0,0 +1,70 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics;
+
+import es.uam.irg.utils.EventLogger;
+import java.util.Map;
+
+/**
+ * Exporter that writes a single summary line (p50/p95/p99 per histogram,
+ * counters and gauges) to the application log.
+ */
+public class LogMetricsExporter implements MetricsExporter {
+
+    /**
+     *
+     * @param registry
+     */
+    @Override
+    public void export(MetricsRegistry registry) {
+        EventLogger.info(getSummary(registry));
+    }
+
+    /**
+     * Creates the summary line.
+     *
+     * @param registry
+     * @return
+     */
+    public static String getSummary(MetricsRegistry registry) {
+        StringBuilder sb = new StringBuilder(">> Metrics:");
+
+        for (Map.Entry<String, LatencyHistogram> entry : registry.getHistograms().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() > 0) {
+                sb.append(String.format(" %s[n=%d p50=%.2f p95=%.2f p99=%.2f max=%.2f ms]", entry.getKey(), histogram.getCount(),
+                        toMillis(histogram.getPercentile(50)), toMillis(histogram.getPercentile(95)),
+                        toMillis(histogram.getPercentile(99)), toMillis(histogram.getMax())));
+            }
+        }
+        sb.append(String.format(" cache_hit_ratio=%.3f", registry.getRatio(MetricsRegistry.CACHE_HITS, MetricsRegistry.CACHE_MISSES)));
+        registry.getGauges().forEach((name, value) -> sb.append(" ").append(name).append("=").append(value));
+
+        return sb.toString();
+    }
+
+    /**
+     *
+     * @param nanos
+     * @return
+     */
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+}
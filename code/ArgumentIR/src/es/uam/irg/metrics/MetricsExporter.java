@@ -0,0 +1,38 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics;
+
+/**
+ * Pluggable metrics exporter.
+ */
+public interface MetricsExporter {
+
+    /**
+     * Releases the exporter resources (if any).
+     */
+    default void close() {
+    }
+
+    /**
+     * Exports the current state of the registry.
+     *
+     * @param registry
+     */
+    void export(MetricsRegistry registry);
+
+}
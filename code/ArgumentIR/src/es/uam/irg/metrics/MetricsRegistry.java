@@ -0,0 +1,191 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide metrics registry (latency histograms, counters and
+ * gauges). Exporters are plugged in and called periodically.
+ */
+public class MetricsRegistry {
+
+    // Metric names
+    public static final String ARGUMENT_LOOKUP = "argument_lookup";
+    public static final String CACHE_HITS = "search_cache_hits";
+    public static final String CACHE_MISSES = "search_cache_misses";
+    public static final String INDEX_BYTES = "index_bytes";
+    public static final String INDEX_DOCUMENTS = "index_documents";
+    public static final String LUCENE_SEARCH = "lucene_search";
+    public static final String PAGINATION = "pagination";
+    public static final String QUERY_PARSE = "query_parse";
+    public static final String RENDER = "render";
+    public static final String RERANK = "rerank";
+    public static final String SEARCH_TOTAL = "search_total";
+
+    // Singleton instance
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    // Class members
+    private final Map<String, LongAdder> counters;
+    private final List<MetricsExporter> exporters;
+    private final Map<String, Supplier<Number>> gauges;
+    private final Map<String, LatencyHistogram> histograms;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Private constructor.
+     */
+    private MetricsRegistry() {
+        this.counters = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+        this.exporters = new ArrayList<>();
+        this.scheduler = null;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers an exporter and schedules it with the given period (a period
+     * of 0 registers the exporter without scheduling it, for pull-based
+     * exporters).
+     *
+     * @param exporter
+     * @param periodSeconds
+     */
+    public synchronized void addExporter(MetricsExporter exporter, int periodSeconds) {
+        exporters.add(exporter);
+
+        if (periodSeconds > 0) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "metrics-exporter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            scheduler.scheduleAtFixedRate(() -> {
+                try {
+                    exporter.export(this);
+                } catch (Exception ex) {
+                    System.err.println("Metrics error: " + ex.getMessage());
+                }
+            }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Returns (creating it if needed) a counter.
+     *
+     * @param name
+     * @return
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Registers (or replaces) a gauge.
+     *
+     * @param name
+     * @param supplier
+     */
+    public void gauge(String name, Supplier<Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<String, Number> getGauges() {
+        Map<String, Number> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.get()));
+        return values;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * Returns the ratio between the hits and the total of two counters.
+     *
+     * @param hitsName
+     * @param missesName
+     * @return
+     */
+    public double getRatio(String hitsName, String missesName) {
+        long hits = counter(hitsName).sum();
+        long total = hits + counter(missesName).sum();
+        return (total > 0 ? (double) hits / total : 0.0);
+    }
+
+    /**
+     * Returns (creating it if needed) a latency histogram.
+     *
+     * @param name
+     * @return
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Stops the periodic exporters.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        exporters.forEach(MetricsExporter::close);
+        exporters.clear();
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Pull-based exporter that serves the registry in the Prometheus text
+ * exposition format (histograms are exposed as summaries, in seconds).
+ */
+public class PrometheusExporter implements MetricsExporter {
+
+    // Class constants
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String PATH = "/metrics";
+    private static final String PREFIX = "argir_";
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    // Class members
+    private final MetricsRegistry registry;
+    private HttpServer server;
+
+    /**
+     * Constructor.
+     *
+     * @param registry
+     */
+    public PrometheusExporter(MetricsRegistry registry) {
+        this.registry = registry;
+        this.server = null;
+    }
+
+    /**
+     * Stops the HTTP endpoint.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * Pull-based exporter: nothing is pushed.
+     *
+     * @param registry
+     */
+    @Override
+    public void export(MetricsRegistry registry) {
+    }
+
+    /**
+     * Formats the registry in the Prometheus text format.
+     *
+     * @return
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, LatencyHistogram> entry : registry.getHistograms().entrySet()) {
+            String name = PREFIX + entry.getKey() + "_seconds";
+            LatencyHistogram histogram = entry.getValue();
+            sb.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                sb.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.getPercentile(quantile * 100) / 1e9).append('\n');
+            }
+            sb.append(name).append("_sum ").append(histogram.getSum() / 1e9).append('\n');
+            sb.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+
+        registry.getCounters().forEach((key, value) -> {
+            String name = PREFIX + key + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(value).append('\n');
+        });
+
+        registry.getGauges().forEach((key, value) -> {
+            String name = PREFIX + key;
+            sb.append("# TYPE ").append(name).append(" gauge\n");
+            sb.append(name).append(' ').append(value).append('\n');
+        });
+
+        return sb.toString();
+    }
+
+    /**
+     * Starts the HTTP endpoint on the given port.
+     *
+     * @param port
+     * @throws IOException
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try ( OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics.events;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted for each data loading query (MySQL or MongoDB). The bytes
+ * read are only measured for the MySQL queries (see addRowBytes).
+ */
+@Name("es.uam.irg.DbSelect")
+@Label("Database Select")
+@Category({"ArgumentIR", "Persistence"})
+public class DbSelectEvent extends Event {
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Database")
+    public String database;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Query")
+    public String query;
+
+    @Label("Rows")
+    public int rows;
+
+    /**
+     * Creates and begins a new event.
+     *
+     * @param database
+     * @param operation
+     * @param query
+     * @return
+     */
+    public static DbSelectEvent begin(String database, String operation, String query) {
+        DbSelectEvent event = new DbSelectEvent();
+        event.database = database;
+        event.operation = operation;
+        event.query = query;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Adds the size of the column values of the current row of a result set
+     * to the bytes read (only when the event is enabled).
+     *
+     * @param rs
+     * @throws SQLException
+     */
+    public void addRowBytes(ResultSet rs) throws SQLException {
+        if (isEnabled()) {
+            int nColumns = rs.getMetaData().getColumnCount();
+            for (int i = 1; i <= nColumns; i++) {
+                bytes += getValueBytes(rs, i);
+            }
+        }
+    }
+
+    /**
+     * Returns the size of a column value, as sent by the server (or as text, if
+     * the driver does not return its bytes).
+     *
+     * @param rs
+     * @param column
+     * @return
+     * @throws SQLException
+     */
+    private static int getValueBytes(ResultSet rs, int column) throws SQLException {
+        try {
+            byte[] value = rs.getBytes(column);
+            return (value != null ? value.length : 0);
+        } catch (SQLException ex) {
+            String value = rs.getString(column);
+            return (value != null ? value.length() : 0);
+        }
+    }
+
+    /**
+     * Ends and commits the event with the number of rows read.
+     *
+     * @param rows
+     */
+    public void commit(int rows) {
+        this.rows = rows;
+        commit();
+    }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.metrics.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted when the argument labels are saved to disk.
+ */
+@Name("es.uam.irg.LabelsSave")
+@Label("Labels Save")
+@Category({"ArgumentIR", "Persistence"})
+public class LabelsSaveEvent extends Event {
+
+    @Label("File Path")
+    public String filepath;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("File Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+
+}
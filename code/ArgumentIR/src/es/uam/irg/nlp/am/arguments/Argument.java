@@ -107,6 +107,31 @@ public class Argument {
         completeArgument();
     }
 
+    /**
+     * Alternative constructor (argument exported by the miner, where the ID is
+     * the key of the JSON entry).
+     *
+     * @param argumentID
+     * @param json
+     */
+    public Argument(String argumentID, JSONObject json) {
+        this.argumentID = argumentID;
+        this.userID = json.getInt("userID");
+        this.commentID = json.getInt("commentID");
+        this.parentID = json.getInt("parentID");
+        this.sentenceText = json.getString("sentence");
+        this.sentenceSimple = json.getBoolean("sentenceSimple");
+        this.majorClaim = (json.has("majorClaim") ? new Sentence(json.getJSONObject("majorClaim")) : new Sentence());
+        this.claim = new Sentence(json.getJSONObject("claim"));
+        this.premise = new Sentence(json.getJSONObject("premise"));
+        this.mainVerb = json.optString("mainVerb", "");
+        this.linker = new ArgumentLinker(json.getJSONObject("linker"));
+        this.pattern = new ArgumentPattern(json.getJSONObject("pattern"));
+        this.syntacticTree = json.optString("syntacticTree", null);
+
+        completeArgument();
+    }
+
     /**
      *
      * @param arg
@@ -135,8 +160,12 @@ public class Argument {
                 .append("premise", this.premise.getDocument())
                 .append("mainVerb", this.mainVerb)
                 .append("linker", this.linker.getDocument())
-                .append("pattern", this.pattern.getDocument())
-                .append("syntacticTree", this.syntacticTree);
+                .append("pattern", this.pattern.getDocument());
+
+        // The syntactic tree is not loaded by default (see setSyntacticTree)
+        if (this.syntacticTree != null) {
+            doc.append("syntacticTree", this.syntacticTree);
+        }
 
         return doc;
     }
@@ -212,6 +241,14 @@ public class Argument {
         return nouns;
     }
 
+    /**
+     *
+     * @return
+     */
+    public ArgumentPattern getPattern() {
+        return this.pattern;
+    }
+
     /**
      *
      * @return
@@ -220,6 +257,14 @@ public class Argument {
         return this.proposalID;
     }
 
+    /**
+     *
+     * @return
+     */
+    public String getSentenceText() {
+        return this.sentenceText;
+    }
+
     /**
      *
      * @return
@@ -228,6 +273,14 @@ public class Argument {
         return this.syntacticTree;
     }
 
+    /**
+     *
+     * @param syntacticTree
+     */
+    public void setSyntacticTree(String syntacticTree) {
+        this.syntacticTree = syntacticTree;
+    }
+
     /**
      *
      * @return
@@ -236,6 +289,14 @@ public class Argument {
         return this.pattern.getDepth();
     }
 
+    /**
+     *
+     * @return
+     */
+    public boolean isSentenceSimple() {
+        return this.sentenceSimple;
+    }
+
     /**
      *
      * @return
@@ -67,6 +67,20 @@ public class ArgumentLinker {
         this.spLinker = linker.replace(" ", NGRAMS_DELIMITER);
     }
 
+    /**
+     * Alternative constructor.
+     *
+     * @param json
+     */
+    public ArgumentLinker(JSONObject json) {
+        this.category = json.getString("category");
+        this.subCategory = json.getString("subCategory");
+        this.relationType = json.getString("relationType");
+        this.linker = json.getString("linker");
+        this.nTokens = linker.split(" ").length;
+        this.spLinker = linker.replace(" ", NGRAMS_DELIMITER);
+    }
+
     /**
      *
      * @param lnk
@@ -112,6 +126,10 @@ public class ArgumentLinker {
         return json;
     }
 
+    public String getLinker() {
+        return this.linker;
+    }
+
     public String getSubCategory() {
         return this.subCategory;
     }
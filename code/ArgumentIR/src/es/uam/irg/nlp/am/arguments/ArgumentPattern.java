@@ -62,6 +62,17 @@ public class ArgumentPattern {
         this.fullPattern = "[" + depth + "]-" + value;
     }
 
+    /**
+     * Alternative constructor.
+     *
+     * @param json
+     */
+    public ArgumentPattern(JSONObject json) {
+        this.value = json.getString("value");
+        this.depth = json.getInt("depth");
+        this.fullPattern = "[" + depth + "]-" + value;
+    }
+
     /**
      *
      * @param argPattern
@@ -48,15 +48,21 @@ public class Sentence {
 
     public Sentence(Document doc) {
         this.text = doc.getString("text");
-        this.nouns = FunctionUtils.listFromText(doc.getString("nouns"));
-        this.entities = FunctionUtils.listFromText(doc.getString("entities"));
+        this.nouns = getList(doc.get("nouns"));
+        this.entities = getList(doc.get("entities"));
+    }
+
+    public Sentence(JSONObject json) {
+        this.text = json.getString("text");
+        this.nouns = parseList(json.getString("nouns"));
+        this.entities = parseList(json.getString("entities"));
     }
 
     public Document getDocument() {
         Document doc = new Document();
         doc.append("text", this.text)
-                .append("nouns", this.nouns.toString())
-                .append("entities", this.entities.toString());
+                .append("nouns", this.nouns)
+                .append("entities", this.entities);
 
         return doc;
     }
@@ -82,4 +88,46 @@ public class Sentence {
         return this.text;
     }
 
+    /**
+     * Parses a list in the legacy "[a, b]" text format (items are trimmed and
+     * empty items are skipped).
+     *
+     * @param text
+     * @return
+     */
+    public static List<String> parseList(String text) {
+        List<String> list = new ArrayList<>();
+
+        for (String item : FunctionUtils.listFromText(text)) {
+            item = item.trim();
+            if (!item.isEmpty()) {
+                list.add(item);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Reads a list stored as a native array or in the legacy text format.
+     *
+     * @param value
+     * @return
+     */
+    private static List<String> getList(Object value) {
+        List<String> list = new ArrayList<>();
+
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item != null) {
+                    list.add(item.toString());
+                }
+            }
+        } else if (value != null) {
+            list = parseList(value.toString());
+        }
+
+        return list;
+    }
+
 }
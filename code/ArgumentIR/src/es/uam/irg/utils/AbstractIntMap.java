@@ -0,0 +1,366 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.utils;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base of the int-keyed hash maps: open addressing with linear probing over a
+ * primitive key array (no boxed keys and no entry nodes). Removal shifts the
+ * following entries of the probe chain back, so there are no tombstones. The
+ * values are stored by the subclasses in parallel arrays.
+ *
+ * @param <V>
+ */
+abstract class AbstractIntMap<V> extends AbstractMap<Integer, V> {
+
+    // Class constants
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int MIN_CAPACITY = 8;
+
+    // Class members
+    protected int[] keys;
+    private int mask;
+    private int size;
+    private int threshold;
+    private boolean[] used;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize
+     */
+    protected AbstractIntMap(int expectedSize) {
+        allocate(getCapacity(expectedSize));
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            for (int i = 0; i < used.length; i++) {
+                if (used[i]) {
+                    used[i] = false;
+                    clearValue(i);
+                }
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     *
+     * @param key
+     * @return
+     */
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) && indexOf((Integer) key) >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the keys of the map (in table order).
+     *
+     * @return
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Releases the value of a slot.
+     *
+     * @param index
+     */
+    protected abstract void clearValue(int index);
+
+    /**
+     * Copies a value of the previous values array (returned by resizeValues)
+     * to the new one.
+     *
+     * @param oldValues
+     * @param oldIndex
+     * @param index
+     */
+    protected abstract void copyValue(Object oldValues, int oldIndex, int index);
+
+    /**
+     * Moves a value between two slots of the table.
+     *
+     * @param from
+     * @param to
+     */
+    protected abstract void moveValue(int from, int to);
+
+    /**
+     * Allocates the values array for a new capacity and returns the previous
+     * one.
+     *
+     * @param capacity
+     * @return
+     */
+    protected abstract Object resizeValues(int capacity);
+
+    /**
+     * Returns the slot of a key, or -1 if the key is not in the map.
+     *
+     * @param key
+     * @return
+     */
+    protected final int indexOf(int key) {
+        int ix = hash(key) & mask;
+        while (used[ix]) {
+            if (keys[ix] == key) {
+                return ix;
+            }
+            ix = (ix + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of slots of the table.
+     *
+     * @return
+     */
+    protected final int getTableSize() {
+        return used.length;
+    }
+
+    /**
+     *
+     * @param index
+     * @return
+     */
+    protected final boolean isUsed(int index) {
+        return used[index];
+    }
+
+    /**
+     * Returns the slot of a key, claiming a free slot (encoded as -(slot + 1))
+     * if the key is not in the map. The value of a new slot must be set by the
+     * caller.
+     *
+     * @param key
+     * @return
+     */
+    protected final int insertionIndex(int key) {
+        if (size >= threshold) {
+            resize(used.length << 1);
+        }
+
+        int ix = hash(key) & mask;
+        while (used[ix]) {
+            if (keys[ix] == key) {
+                return ix;
+            }
+            ix = (ix + 1) & mask;
+        }
+        used[ix] = true;
+        keys[ix] = key;
+        size++;
+        return -(ix + 1);
+    }
+
+    /**
+     * Removes the entry of a slot, shifting back the rest of its probe chain.
+     *
+     * @param index
+     */
+    protected final void removeAt(int index) {
+        removeAt(index, null, 0);
+    }
+
+    /**
+     * Iterator over the occupied slots. The table is walked from the end, so
+     * removing the current entry only moves entries that were already
+     * returned, except those that wrap around the end of the table: these are
+     * remembered and returned at the end.
+     *
+     * @param <T>
+     */
+    protected abstract class SlotIterator<T> implements Iterator<T> {
+
+        private int current = -1;
+        private int currentKey;
+        private int pos = used.length;
+        private ArrayDeque<Integer> wrapped;
+
+        @Override
+        public boolean hasNext() {
+            while (pos > 0 && !used[pos - 1]) {
+                pos--;
+            }
+            return pos > 0 || (wrapped != null && !wrapped.isEmpty());
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = (pos > 0 ? --pos : indexOf(wrapped.poll()));
+            currentKey = keys[current];
+            return get(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            int ix = (keys[current] == currentKey && used[current] ? current : indexOf(currentKey));
+            if (wrapped == null) {
+                wrapped = new ArrayDeque<>();
+            }
+            removeAt(ix, wrapped, pos);
+            current = -1;
+        }
+
+        /**
+         * Returns the element of a slot.
+         *
+         * @param index
+         * @return
+         */
+        protected abstract T get(int index);
+
+    }
+
+    /**
+     *
+     * @param capacity
+     */
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+        resizeValues(capacity);
+    }
+
+    /**
+     * Returns the table capacity (a power of two) for an expected size.
+     *
+     * @param expectedSize
+     * @return
+     */
+    private static int getCapacity(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads the key bits (Fibonacci hashing), since the ids are mostly
+     * consecutive.
+     *
+     * @param key
+     * @return
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Removes the entry of a slot, shifting back the rest of its probe chain.
+     * The keys of the entries moved from below the limit (not yet returned by
+     * an iterator) to above it are added to the wrapped queue (if any).
+     *
+     * @param index
+     * @param wrapped
+     * @param limit
+     */
+    private void removeAt(int index, ArrayDeque<Integer> wrapped, int limit) {
+        int last = index;
+        int ix = (last + 1) & mask;
+        size--;
+
+        while (used[ix]) {
+            int home = hash(keys[ix]) & mask;
+            boolean movable = (last <= ix ? (home <= last || home > ix) : (home <= last && home > ix));
+            if (movable) {
+                if (wrapped != null && ix < limit && last >= limit) {
+                    wrapped.add(keys[ix]);
+                }
+                keys[last] = keys[ix];
+                moveValue(ix, last);
+                last = ix;
+            }
+            ix = (ix + 1) & mask;
+        }
+
+        used[last] = false;
+        clearValue(last);
+    }
+
+    /**
+     * Rehashes all entries into a table of the given capacity.
+     *
+     * @param capacity
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = this.keys;
+        boolean[] oldUsed = this.used;
+        this.keys = new int[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (capacity < MAX_CAPACITY ? (int) (capacity * LOAD_FACTOR) : Integer.MAX_VALUE);
+        Object oldValues = resizeValues(capacity);
+
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int ix = hash(oldKeys[i]) & mask;
+                while (used[ix]) {
+                    ix = (ix + 1) & mask;
+                }
+                used[ix] = true;
+                keys[ix] = oldKeys[i];
+                copyValue(oldValues, i, ix);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,335 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.utils;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured event logger. Callers only copy the event (level,
+ * timestamp, message and up to MAX_FIELDS key/value pairs) into a
+ * pre-allocated slot of a lock-free ring buffer; formatting and writing are
+ * done by a dedicated daemon thread, which sleeps while the buffer is empty
+ * (the callers wake it up) and flushes the output after each batch. When the
+ * buffer is full, events are dropped (and counted) instead of blocking the
+ * caller.
+ */
+public class EventLogger {
+
+    // Class constants
+    public static final int BUFFER_SIZE = 4096;
+    public static final int MAX_FIELDS = 4;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final Object[] NO_FIELDS = new Object[0];
+    private static final EventLogger INSTANCE = new EventLogger(BUFFER_SIZE, System.out);
+
+    // Ring buffer
+    private final AtomicLong claimed;
+    private final AtomicLong consumed;
+    private final LongAdder dropped;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final Slot[] slots;
+
+    // Writer
+    private final StringBuilder line;
+    private volatile Level minLevel;
+    private final PrintStream out;
+    private volatile boolean waiting;
+    private final Thread writer;
+
+    /**
+     * Log levels.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize (rounded up to a power of two)
+     * @param out
+     */
+    EventLogger(int bufferSize, PrintStream out) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new Slot[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        this.claimed = new AtomicLong(0);
+        this.consumed = new AtomicLong(0);
+        this.dropped = new LongAdder();
+        this.line = new StringBuilder(256);
+        this.minLevel = Level.INFO;
+        this.out = out;
+        this.waiting = false;
+
+        this.writer = new Thread(this::writeLoop, "event-logger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "event-logger-flush"));
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static EventLogger getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     *
+     * @param msg
+     * @param kv key/value pairs
+     */
+    public static void debug(String msg, Object... kv) {
+        INSTANCE.log(Level.DEBUG, msg, null, kv);
+    }
+
+    /**
+     *
+     * @param msg
+     * @param ex
+     */
+    public static void error(String msg, Throwable ex) {
+        INSTANCE.log(Level.ERROR, msg, ex, NO_FIELDS);
+    }
+
+    /**
+     *
+     * @param msg
+     */
+    public static void info(String msg) {
+        INSTANCE.log(Level.INFO, msg, null, NO_FIELDS);
+    }
+
+    /**
+     *
+     * @param msg
+     * @param kv key/value pairs
+     */
+    public static void info(String msg, Object... kv) {
+        INSTANCE.log(Level.INFO, msg, null, kv);
+    }
+
+    /**
+     *
+     * @param msg
+     * @param kv key/value pairs
+     */
+    public static void warn(String msg, Object... kv) {
+        INSTANCE.log(Level.WARN, msg, null, kv);
+    }
+
+    /**
+     * Blocks until all the published events have been written (or the
+     * timeout expires).
+     */
+    public void flush() {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+
+        while (consumed.get() < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            Thread.onSpinWait();
+        }
+        out.flush();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Level getLevel() {
+        return this.minLevel;
+    }
+
+    /**
+     *
+     * @param level
+     * @return
+     */
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= minLevel.ordinal();
+    }
+
+    /**
+     * Publishes an event in the ring buffer (never blocks).
+     *
+     * @param level
+     * @param msg
+     * @param ex
+     * @param kv key/value pairs
+     */
+    public void log(Level level, String msg, Throwable ex, Object... kv) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        // Claim a sequence number
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        // Fill and publish the slot
+        int ix = (int) (seq & mask);
+        Slot slot = slots[ix];
+        slot.timestamp = System.currentTimeMillis();
+        slot.level = level;
+        slot.message = msg;
+        slot.error = ex;
+        slot.nFields = Math.min(MAX_FIELDS, kv.length / 2);
+        for (int i = 0; i < slot.nFields; i++) {
+            slot.keys[i] = String.valueOf(kv[2 * i]);
+            slot.values[i] = kv[2 * i + 1];
+        }
+        published.set(ix, seq);
+        if (waiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     *
+     * @param level
+     */
+    public void setLevel(Level level) {
+        this.minLevel = level;
+    }
+
+    /**
+     * Formats a slot into the reusable line buffer.
+     *
+     * @param slot
+     */
+    private void format(Slot slot) {
+        line.setLength(0);
+        if (slot.level != Level.INFO) {
+            line.append('[').append(slot.level).append("] ");
+        }
+        line.append(slot.message);
+        for (int i = 0; i < slot.nFields; i++) {
+            line.append(i == 0 ? " [" : " ").append(slot.keys[i]).append('=').append(slot.values[i]);
+        }
+        if (slot.nFields > 0) {
+            line.append(']');
+        }
+        line.append(" - ");
+        DATE_FORMAT.formatTo(Instant.ofEpochMilli(slot.timestamp), line);
+    }
+
+    /**
+     * Writer thread loop: consumes the published events in order, flushes the
+     * output when the buffer is drained and sleeps until an event is
+     * published.
+     */
+    private void writeLoop() {
+        long seq = 0;
+        long lastDropped = 0;
+        boolean pending = false;
+
+        while (true) {
+            int ix = (int) (seq & mask);
+
+            if (published.get(ix) == seq) {
+                Slot slot = slots[ix];
+                format(slot);
+                Throwable error = slot.error;
+                slot.clear();
+                consumed.lazySet(++seq);
+
+                out.println(line);
+                if (error != null) {
+                    error.printStackTrace(out);
+                }
+                pending = true;
+
+            } else {
+                long nDropped = dropped.sum();
+                if (nDropped != lastDropped) {
+                    out.println("[WARN] Event logger buffer full, dropped events: " + (nDropped - lastDropped));
+                    lastDropped = nDropped;
+                    pending = true;
+                }
+                if (pending) {
+                    out.flush();
+                    pending = false;
+                }
+
+                // The callers check the flag after publishing, so the event
+                // published between the check and the park is not missed
+                waiting = true;
+                if (published.get(ix) != seq) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    /**
+     * Pre-allocated ring buffer slot.
+     */
+    private static class Slot {
+
+        private Throwable error;
+        private final String[] keys = new String[MAX_FIELDS];
+        private Level level;
+        private String message;
+        private int nFields;
+        private long timestamp;
+        private final Object[] values = new Object[MAX_FIELDS];
+
+        void clear() {
+            message = null;
+            error = null;
+            for (int i = 0; i < nFields; i++) {
+                keys[i] = null;
+                values[i] = null;
+            }
+            nFields = 0;
+        }
+
+    }
+
+}
@@ -18,16 +18,12 @@
 package es.uam.irg.utils;
 
 import java.awt.Color;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import javax.swing.SwingUtilities;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -36,9 +32,6 @@ import org.json.JSONObject;
  */
 public class FunctionUtils {
 
-    // Class variables
-    private static final DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-
     /**
      *
      * @param <T>
@@ -139,13 +132,13 @@ public class FunctionUtils {
     }
 
     /**
+     * Logs a message (with its timestamp) through the asynchronous event
+     * logger.
      *
      * @param msg
      */
     public static void printWithDatestamp(String msg) {
-        SwingUtilities.invokeLater(() -> {
-            System.out.println(msg + " - " + dateFormat.format(new Date()));
-        });
+        EventLogger.info(msg);
     }
 
     /**
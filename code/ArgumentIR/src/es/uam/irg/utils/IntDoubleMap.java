@@ -0,0 +1,257 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.utils;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Open-addressing hash map from int keys to double values. Each entry costs
+ * one int and one double in two parallel arrays (instead of a HashMap node, a
+ * boxed key and a boxed value), and the primitive overloads neither box nor
+ * unbox.
+ */
+public class IntDoubleMap extends AbstractIntMap<Double> {
+
+    // Class members
+    private double[] values;
+
+    /**
+     * Primitive entry consumer.
+     */
+    @FunctionalInterface
+    public interface IntDoubleConsumer {
+
+        void accept(int key, double value);
+
+    }
+
+    /**
+     * Constructor.
+     */
+    public IntDoubleMap() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize
+     */
+    public IntDoubleMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param map
+     */
+    public IntDoubleMap(Map<Integer, Double> map) {
+        this(map.size());
+        map.forEach((key, value) -> put(key.intValue(), value.doubleValue()));
+    }
+
+    /**
+     * Returns the given map if it is already an IntDoubleMap, or a copy.
+     *
+     * @param map
+     * @return
+     */
+    public static IntDoubleMap of(Map<Integer, Double> map) {
+        return (map instanceof IntDoubleMap ? (IntDoubleMap) map : new IntDoubleMap(map));
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Double>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Integer, Double>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    protected Map.Entry<Integer, Double> get(int index) {
+                        return new Entry(IntDoubleMap.this, keys[index], values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntDoubleMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Calls the consumer for each entry, without boxing.
+     *
+     * @param consumer
+     */
+    public void forEachEntry(IntDoubleConsumer consumer) {
+        for (int i = 0; i < getTableSize(); i++) {
+            if (isUsed(i)) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Double get(Object key) {
+        if (key instanceof Integer) {
+            int ix = indexOf((Integer) key);
+            return (ix >= 0 ? values[ix] : null);
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public double getOrDefault(int key, double defaultValue) {
+        int ix = indexOf(key);
+        return (ix >= 0 ? values[ix] : defaultValue);
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return the previous value, or 0 if the key was not in the map
+     */
+    public double put(int key, double value) {
+        int ix = insertionIndex(key);
+        if (ix < 0) {
+            values[-(ix + 1)] = value;
+            return 0.0;
+        }
+        double previous = values[ix];
+        values[ix] = value;
+        return previous;
+    }
+
+    @Override
+    public Double put(Integer key, Double value) {
+        Double previous = get(key);
+        put(key.intValue(), value.doubleValue());
+        return previous;
+    }
+
+    /**
+     *
+     * @param key
+     * @return true if the key was in the map
+     */
+    public boolean remove(int key) {
+        int ix = indexOf(key);
+        if (ix >= 0) {
+            removeAt(ix);
+        }
+        return ix >= 0;
+    }
+
+    @Override
+    public Double remove(Object key) {
+        Double previous = get(key);
+        if (previous != null) {
+            remove(((Integer) key).intValue());
+        }
+        return previous;
+    }
+
+    @Override
+    protected void clearValue(int index) {
+        values[index] = 0.0;
+    }
+
+    @Override
+    protected void copyValue(Object oldValues, int oldIndex, int index) {
+        values[index] = ((double[]) oldValues)[oldIndex];
+    }
+
+    @Override
+    protected void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    protected Object resizeValues(int capacity) {
+        double[] oldValues = values;
+        values = new double[capacity];
+        return oldValues;
+    }
+
+    /**
+     * Map entry (writes through to the map).
+     */
+    private static class Entry implements Map.Entry<Integer, Double> {
+
+        private final int key;
+        private final IntDoubleMap map;
+        private double value;
+
+        Entry(IntDoubleMap map, int key, double value) {
+            this.map = map;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return getKey().equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+
+        @Override
+        public Double getValue() {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(key) ^ Double.hashCode(value);
+        }
+
+        @Override
+        public Double setValue(Double value) {
+            map.put(key, value.doubleValue());
+            double previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+
+    }
+
+}
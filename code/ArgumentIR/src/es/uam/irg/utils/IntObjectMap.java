@@ -0,0 +1,289 @@
+/**
+ * Copyright 2022
+ * Andrés Segura-Tinoco
+ * Information Retrieval Group at Universidad Autonoma de Madrid
+ *
+ * This is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This software is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * the current software. If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uam.irg.utils;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash map from int keys to objects. Each entry costs one int
+ * and one reference in two parallel arrays (instead of a HashMap node and a
+ * boxed key), and the int overloads look up without boxing. Null values are
+ * not allowed.
+ *
+ * @param <V>
+ */
+public class IntObjectMap<V> extends AbstractIntMap<V> {
+
+    // Class members
+    private V[] values;
+
+    /**
+     * Primitive entry consumer.
+     *
+     * @param <V>
+     */
+    @FunctionalInterface
+    public interface IntObjectConsumer<V> {
+
+        void accept(int key, V value);
+
+    }
+
+    /**
+     * Constructor.
+     */
+    public IntObjectMap() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize
+     */
+    public IntObjectMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param map
+     */
+    public IntObjectMap(Map<Integer, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    /**
+     * Returns the given map if it is already an IntObjectMap, or a copy.
+     *
+     * @param <V>
+     * @param map
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> IntObjectMap<V> of(Map<Integer, V> map) {
+        return (map instanceof IntObjectMap ? (IntObjectMap<V>) map : new IntObjectMap<>(map));
+    }
+
+    /**
+     *
+     * @param key
+     * @param mapping
+     * @return
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> mapping) {
+        int ix = indexOf(key);
+        if (ix >= 0) {
+            return values[ix];
+        }
+        V value = Objects.requireNonNull(mapping.apply(key));
+        ix = -(insertionIndex(key) + 1);
+        values[ix] = value;
+        return value;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    protected Map.Entry<Integer, V> get(int index) {
+                        return new Entry<>(IntObjectMap.this, keys[index], values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntObjectMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Calls the consumer for each entry, without boxing the keys.
+     *
+     * @param consumer
+     */
+    public void forEachEntry(IntObjectConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param key
+     * @return
+     */
+    public V get(int key) {
+        int ix = indexOf(key);
+        return (ix >= 0 ? values[ix] : null);
+    }
+
+    @Override
+    public V get(Object key) {
+        return (key instanceof Integer ? get(((Integer) key).intValue()) : null);
+    }
+
+    /**
+     *
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public V getOrDefault(int key, V defaultValue) {
+        int ix = indexOf(key);
+        return (ix >= 0 ? values[ix] : defaultValue);
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return the previous value, or null
+     */
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        int ix = insertionIndex(key);
+        if (ix < 0) {
+            values[-(ix + 1)] = value;
+            return null;
+        }
+        V previous = values[ix];
+        values[ix] = value;
+        return previous;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     *
+     * @param key
+     * @return the removed value, or null
+     */
+    public V remove(int key) {
+        int ix = indexOf(key);
+        if (ix < 0) {
+            return null;
+        }
+        V previous = values[ix];
+        removeAt(ix);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return (key instanceof Integer ? remove(((Integer) key).intValue()) : null);
+    }
+
+    @Override
+    protected void clearValue(int index) {
+        values[index] = null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void copyValue(Object oldValues, int oldIndex, int index) {
+        values[index] = ((V[]) oldValues)[oldIndex];
+    }
+
+    @Override
+    protected void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object resizeValues(int capacity) {
+        V[] oldValues = values;
+        values = (V[]) new Object[capacity];
+        return oldValues;
+    }
+
+    /**
+     * Map entry (writes through to the map).
+     *
+     * @param <V>
+     */
+    private static class Entry<V> implements Map.Entry<Integer, V> {
+
+        private final int key;
+        private final IntObjectMap<V> map;
+        private V value;
+
+        Entry(IntObjectMap<V> map, int key, V value) {
+            this.map = map;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return getKey().equals(other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            map.put(key, value);
+            V previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+
+    }
+
+}